@@ -0,0 +1,148 @@
+/**
+ * Copyright 2010 Richard Johnson & Orin Eman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ---
+ *
+ * This file is part of java-libpst.
+ *
+ * java-libpst is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * java-libpst is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-libpst.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.pff;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * BlockCache holds decoded data blocks, keyed by block id (BID).
+ * Tables and property contexts are opened over and over (the contents table of a folder,
+ * the attachment table of a message...), the cache lets those reads be served from memory.
+ * The size of the cached blocks is accounted for in bytes and kept under a cap.
+ * Lookups and inserts can happen from any number of threads at once, eviction uses the CLOCK
+ * algorithm (an approximation of LRU) so a hit only has to set a flag.
+ * Cached blocks are shared, callers must not modify them.
+ */
+class BlockCache {
+
+	private static class Entry {
+		final long bid;
+		final byte[] data;
+		volatile boolean referenced = true;
+
+		Entry(long bid, byte[] data) {
+			this.bid = bid;
+			this.data = data;
+		}
+	}
+
+	private final long maximumSize;
+	private final AtomicLong currentSize = new AtomicLong();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	private final ConcurrentHashMap<Long, Entry> blocks = new ConcurrentHashMap<Long, Entry>();
+	// the clock, entries are added at the tail and the hand sweeps from the head
+	private final ConcurrentLinkedQueue<Entry> clock = new ConcurrentLinkedQueue<Entry>();
+	// only one thread sweeps at a time, the others carry on
+	private final AtomicBoolean evicting = new AtomicBoolean();
+
+	/**
+	 * @param maximumSize byte budget for the cached blocks
+	 */
+	BlockCache(long maximumSize) {
+		this.maximumSize = maximumSize;
+	}
+
+	/**
+	 * @param bid
+	 * @return the cached block data or null if it isn't in the cache
+	 */
+	byte[] get(long bid) {
+		Entry entry = this.blocks.get(bid);
+		if (entry == null) {
+			this.misses.incrementAndGet();
+			return null;
+		}
+		entry.referenced = true;
+		this.hits.incrementAndGet();
+		return entry.data;
+	}
+
+	void put(long bid, byte[] data) {
+		if (data.length > this.maximumSize) {
+			return;
+		}
+		Entry entry = new Entry(bid, data);
+		if (this.blocks.putIfAbsent(bid, entry) != null) {
+			// someone else got there first
+			return;
+		}
+		this.clock.add(entry);
+		if (this.currentSize.addAndGet(data.length) > this.maximumSize) {
+			this.evict();
+		}
+	}
+
+	/**
+	 * sweep the clock until we are back under budget
+	 */
+	private void evict() {
+		if (!this.evicting.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			Entry entry;
+			while (this.currentSize.get() > this.maximumSize && (entry = this.clock.poll()) != null) {
+				if (entry.referenced) {
+					// second chance
+					entry.referenced = false;
+					this.clock.add(entry);
+				} else {
+					this.blocks.remove(entry.bid, entry);
+					this.currentSize.addAndGet(-entry.data.length);
+				}
+			}
+		} finally {
+			this.evicting.set(false);
+		}
+	}
+
+	long getHits() {
+		return this.hits.get();
+	}
+
+	long getMisses() {
+		return this.misses.get();
+	}
+
+	long getSize() {
+		return this.currentSize.get();
+	}
+
+	long getMaximumSize() {
+		return this.maximumSize;
+	}
+}
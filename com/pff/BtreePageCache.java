@@ -0,0 +1,110 @@
+/**
+ * Copyright 2010 Richard Johnson & Orin Eman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ---
+ *
+ * This file is part of java-libpst.
+ *
+ * java-libpst is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * java-libpst is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-libpst.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.pff;
+
+import java.util.*;
+
+/**
+ * BtreePageCache holds recently used b-tree pages, keyed by their file offset.
+ * The root and upper branch pages are read on every lookup, so even a small cache removes most of
+ * the repeated reads when navigating the b-trees.
+ * Memory is bounded by a byte budget, the least recently used pages are dropped first.
+ * Cached pages are shared, callers must not modify them.
+ */
+class BtreePageCache {
+
+	private long maximumSize;
+	private long currentSize = 0;
+	private long hits = 0;
+	private long misses = 0;
+
+	private LinkedHashMap<Long, byte[]> pages;
+
+	/**
+	 * @param maximumSize byte budget for the cached pages
+	 */
+	BtreePageCache(long maximumSize) {
+		this.maximumSize = maximumSize;
+		// access ordered, so iteration starts at the least recently used page
+		this.pages = new LinkedHashMap<Long, byte[]>(64, 0.75f, true);
+	}
+
+	/**
+	 * @param pageOffset
+	 * @return the cached page or null if it isn't in the cache
+	 */
+	synchronized byte[] get(long pageOffset) {
+		byte[] page = this.pages.get(pageOffset);
+		if (page == null) {
+			this.misses++;
+		} else {
+			this.hits++;
+		}
+		return page;
+	}
+
+	synchronized void put(long pageOffset, byte[] page) {
+		if (page.length > this.maximumSize) {
+			return;
+		}
+		byte[] previous = this.pages.put(pageOffset, page);
+		if (previous != null) {
+			this.currentSize -= previous.length;
+		}
+		this.currentSize += page.length;
+
+		// evict until we are back under budget
+		Iterator<byte[]> iterator = this.pages.values().iterator();
+		while (this.currentSize > this.maximumSize && iterator.hasNext()) {
+			this.currentSize -= iterator.next().length;
+			iterator.remove();
+		}
+	}
+
+	synchronized long getHits() {
+		return this.hits;
+	}
+
+	synchronized long getMisses() {
+		return this.misses;
+	}
+
+	synchronized long getSize() {
+		return this.currentSize;
+	}
+
+	long getMaximumSize() {
+		return this.maximumSize;
+	}
+}
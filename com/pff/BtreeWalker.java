@@ -0,0 +1,180 @@
+/**
+ * Copyright 2010 Richard Johnson & Orin Eman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ---
+ *
+ * This file is part of java-libpst.
+ *
+ * java-libpst is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * java-libpst is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-libpst.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.pff;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Walks the pages of one of the b-trees of the file, the descriptor (node) b-tree or the offset (block) b-tree,
+ * and hands every leaf entry to a handler in the order they are stored.
+ * The in memory indexes and the fallback children tree are all built from this walk.
+ */
+class BtreeWalker {
+
+	/**
+	 * receives the leaf entries of a b-tree
+	 */
+	interface EntryHandler {
+		/**
+		 * @param page the leaf page, shared with the page cache so it mustn't be modified
+		 * @param itemOffset where the entry starts in the page
+		 */
+		void handleEntry(byte[] page, int itemOffset)
+			throws PSTException;
+	}
+
+	/**
+	 * walk a b-tree from its root page
+	 * @param pstFile
+	 * @param btreeStartOffset file offset of the root page
+	 * @param descriptorTree true for the descriptor b-tree, false for the offset b-tree
+	 * @param handler called with each leaf entry
+	 * @throws IOException
+	 * @throws PSTException
+	 */
+	static void walk(PSTFile pstFile, long btreeStartOffset, boolean descriptorTree, EntryHandler handler)
+		throws IOException, PSTException
+	{
+		boolean ansi = pstFile.getPSTFileType() == PSTFile.PST_TYPE_ANSI;
+		int leafItemSize;
+		if (descriptorTree) {
+			leafItemSize = ansi ? 16 : 32;
+		} else {
+			leafItemSize = ansi ? 12 : 24;
+		}
+		walkPage(pstFile, btreeStartOffset, ansi, descriptorTree ? (byte)0x81 : (byte)0x80, leafItemSize, handler);
+	}
+
+	private static void walkPage(PSTFile pstFile, long pageOffset, boolean ansi, byte pageType, int leafItemSize, EntryHandler handler)
+		throws IOException, PSTException
+	{
+		byte[] page = pstFile.readBtreePage(pageOffset);
+		int pageTypeOffset = ansi ? 500 : 496;
+		if (page[pageTypeOffset] != pageType || page[pageTypeOffset+1] != pageType) {
+			if (pageType == (byte)0x81) {
+				throw new PSTException("Unable to read descriptor node, is not a descriptor");
+			}
+			throw new PSTException("Unable to read offset index node, is not an offset index");
+		}
+
+		int countOffset = ansi ? 496 : 488;
+		int numberOfItems = page[countOffset] & 0xff;
+		// maxNumberOfItems and itemSize follow
+		int levelsToLeaf = page[countOffset+3] & 0xff;
+
+		if (levelsToLeaf > 0) {
+			// branch entries are the first key, the block id and the offset of the child page
+			int itemSize = ansi ? 12 : 24;
+			int keySize = ansi ? 4 : 8;
+			for (int x = 0; x < numberOfItems; x++) {
+				int childOffset = x * itemSize + keySize * 2;
+				walkPage(pstFile, PSTObject.convertLittleEndianBytesToLong(page, childOffset, childOffset + keySize),
+						ansi, pageType, leafItemSize, handler);
+			}
+		} else {
+			for (int x = 0; x < numberOfItems; x++) {
+				handler.handleEntry(page, x * leafItemSize);
+			}
+		}
+	}
+
+	/**
+	 * grow a column of an index to hold at least required entries
+	 */
+	static long[] ensureCapacity(long[] column, int required) {
+		if (required <= column.length) {
+			return column;
+		}
+		return Arrays.copyOf(column, Math.max(required, column.length * 2));
+	}
+
+	static int[] ensureCapacity(int[] column, int required) {
+		if (required <= column.length) {
+			return column;
+		}
+		return Arrays.copyOf(column, Math.max(required, column.length * 2));
+	}
+
+	/**
+	 * The leaves of a valid b-tree come out in order, but don't count on it.
+	 * @param keys the keys of the entries, compared as signed longs
+	 * @param count the number of entries
+	 * @return the positions of the entries in key order, or null if they are already in order
+	 */
+	static int[] getSortOrder(final long[] keys, int count) {
+		boolean sorted = true;
+		for (int x = 1; x < count && sorted; x++) {
+			sorted = keys[x-1] <= keys[x];
+		}
+		if (sorted) {
+			return null;
+		}
+		Integer[] order = new Integer[count];
+		for (int x = 0; x < count; x++) {
+			order[x] = x;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				long keyA = keys[a];
+				long keyB = keys[b];
+				return keyA < keyB ? -1 : (keyA == keyB ? 0 : 1);
+			}
+		});
+		int[] output = new int[count];
+		for (int x = 0; x < count; x++) {
+			output[x] = order[x];
+		}
+		return output;
+	}
+
+	/**
+	 * @return a copy of the column with its entries in the given order
+	 */
+	static long[] reorder(long[] column, int[] order) {
+		long[] output = new long[order.length];
+		for (int x = 0; x < order.length; x++) {
+			output[x] = column[order[x]];
+		}
+		return output;
+	}
+
+	static int[] reorder(int[] column, int[] order) {
+		int[] output = new int[order.length];
+		for (int x = 0; x < order.length; x++) {
+			output[x] = column[order[x]];
+		}
+		return output;
+	}
+}
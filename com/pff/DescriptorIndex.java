@@ -0,0 +1,236 @@
+/**
+ * Copyright 2010 Richard Johnson & Orin Eman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ---
+ *
+ * This file is part of java-libpst.
+ *
+ * java-libpst is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * java-libpst is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-libpst.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.pff;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+
+/**
+ * DescriptorIndex is an in memory copy of the leaves of the Descriptor index b-tree (the node b-tree).
+ * Each node takes 24 bytes: the descriptor identifier, the data and local descriptor block ids and the parent.
+ * Entries are kept sorted by descriptor identifier in primitive arrays, or in a direct buffer outside
+ * of the java heap, so finding a node is a binary search with no I/O.
+ */
+class DescriptorIndex implements BtreeWalker.EntryHandler {
+
+	/**
+	 * bytes used for each entry
+	 */
+	static final int ENTRY_SIZE = 24;
+
+	private int[] nid;
+	private long[] dataBid;
+	private long[] subnodeBid;
+	private int[] parentNid;
+	private int count = 0;
+
+	// only used when the index is held off heap
+	// each entry is nid, parent, data bid, local descriptors bid
+	private ByteBuffer entries = null;
+
+	private int pstFileType;
+
+	/**
+	 * walk the whole b-tree from the root and load every leaf entry
+	 * @param pstFile
+	 * @param btreeStartOffset file offset of the root page
+	 * @param offHeap keep the entries in a direct buffer rather than on the heap
+	 * @throws IOException
+	 * @throws PSTException
+	 */
+	DescriptorIndex(PSTFile pstFile, long btreeStartOffset, boolean offHeap)
+		throws IOException, PSTException
+	{
+		this.pstFileType = pstFile.getPSTFileType();
+		this.nid = new int[1024];
+		this.dataBid = new long[1024];
+		this.subnodeBid = new long[1024];
+		this.parentNid = new int[1024];
+		BtreeWalker.walk(pstFile, btreeStartOffset, true, this);
+		this.sortIfRequired();
+
+		if (offHeap) {
+			this.entries = ByteBuffer.allocateDirect(this.count * ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			for (int x = 0; x < this.count; x++) {
+				this.entries.putInt(this.nid[x]);
+				this.entries.putInt(this.parentNid[x]);
+				this.entries.putLong(this.dataBid[x]);
+				this.entries.putLong(this.subnodeBid[x]);
+			}
+			this.nid = null;
+			this.dataBid = null;
+			this.subnodeBid = null;
+			this.parentNid = null;
+		} else {
+			this.nid = Arrays.copyOf(this.nid, this.count);
+			this.dataBid = Arrays.copyOf(this.dataBid, this.count);
+			this.subnodeBid = Arrays.copyOf(this.subnodeBid, this.count);
+			this.parentNid = Arrays.copyOf(this.parentNid, this.count);
+		}
+	}
+
+	public void handleEntry(byte[] page, int itemOffset) {
+		this.nid = BtreeWalker.ensureCapacity(this.nid, this.count + 1);
+		this.dataBid = BtreeWalker.ensureCapacity(this.dataBid, this.count + 1);
+		this.subnodeBid = BtreeWalker.ensureCapacity(this.subnodeBid, this.count + 1);
+		this.parentNid = BtreeWalker.ensureCapacity(this.parentNid, this.count + 1);
+		// parse the same way as DescriptorIndexNode so both paths agree
+		if (this.pstFileType == PSTFile.PST_TYPE_ANSI) {
+			this.nid[this.count] = (int)PSTObject.convertLittleEndianBytesToLong(page, itemOffset, itemOffset+4);
+			this.dataBid[this.count] = (int)PSTObject.convertLittleEndianBytesToLong(page, itemOffset+4, itemOffset+8);
+			this.subnodeBid[this.count] = (int)PSTObject.convertLittleEndianBytesToLong(page, itemOffset+8, itemOffset+12);
+			this.parentNid[this.count] = (int)PSTObject.convertLittleEndianBytesToLong(page, itemOffset+12, itemOffset+16);
+		} else {
+			this.nid[this.count] = (int)PSTObject.convertLittleEndianBytesToLong(page, itemOffset, itemOffset+4);
+			this.dataBid[this.count] = (int)PSTObject.convertLittleEndianBytesToLong(page, itemOffset+8, itemOffset+16);
+			this.subnodeBid[this.count] = (int)PSTObject.convertLittleEndianBytesToLong(page, itemOffset+16, itemOffset+24);
+			this.parentNid[this.count] = (int)PSTObject.convertLittleEndianBytesToLong(page, itemOffset+24, itemOffset+28);
+		}
+		this.count++;
+	}
+
+	/**
+	 * Identifiers are compared unsigned, the same as they are in the file.
+	 */
+	private void sortIfRequired() {
+		long[] keys = new long[this.count];
+		for (int x = 0; x < this.count; x++) {
+			keys[x] = this.nid[x] & 0xffffffffL;
+		}
+		int[] order = BtreeWalker.getSortOrder(keys, this.count);
+		if (order != null) {
+			this.nid = BtreeWalker.reorder(this.nid, order);
+			this.dataBid = BtreeWalker.reorder(this.dataBid, order);
+			this.subnodeBid = BtreeWalker.reorder(this.subnodeBid, order);
+			this.parentNid = BtreeWalker.reorder(this.parentNid, order);
+		}
+	}
+
+	private int nidAt(int index) {
+		if (this.entries != null) {
+			return this.entries.getInt(index * ENTRY_SIZE);
+		}
+		return this.nid[index];
+	}
+
+	private int parentNidAt(int index) {
+		if (this.entries != null) {
+			return this.entries.getInt(index * ENTRY_SIZE + 4);
+		}
+		return this.parentNid[index];
+	}
+
+	private long dataBidAt(int index) {
+		if (this.entries != null) {
+			return this.entries.getLong(index * ENTRY_SIZE + 8);
+		}
+		return this.dataBid[index];
+	}
+
+	private long subnodeBidAt(int index) {
+		if (this.entries != null) {
+			return this.entries.getLong(index * ENTRY_SIZE + 16);
+		}
+		return this.subnodeBid[index];
+	}
+
+	/**
+	 * @param identifier the descriptor identifier
+	 * @return the position of the node in the index, or -1 if it isn't there
+	 */
+	int indexOf(long identifier) {
+		int low = 0;
+		int high = this.count - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			long midNid = this.nidAt(mid) & 0xffffffffL;
+			if (midNid < identifier) {
+				low = mid + 1;
+			} else if (midNid > identifier) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * find a node
+	 * @param identifier
+	 * @return the descriptor index node
+	 * @throws PSTException if the node isn't in the index
+	 */
+	DescriptorIndexNode getDescriptorIndexNode(long identifier)
+		throws PSTException
+	{
+		int index = this.indexOf(identifier);
+		if (index < 0) {
+			throw new PSTException("Unable to find "+identifier);
+		}
+		return this.getNodeAt(index);
+	}
+
+	/**
+	 * @param index position in the index
+	 * @return the node at that position
+	 */
+	DescriptorIndexNode getNodeAt(int index) {
+		return new DescriptorIndexNode(this.nidAt(index), this.dataBidAt(index),
+				this.subnodeBidAt(index), this.parentNidAt(index));
+	}
+
+	/**
+	 * @return the number of nodes in the index
+	 */
+	int size() {
+		return this.count;
+	}
+
+	/**
+	 * @return true if the entries are held outside of the java heap
+	 */
+	boolean isOffHeap() {
+		return this.entries != null;
+	}
+
+	/**
+	 * @return approximate number of bytes used to hold the index
+	 */
+	long getMemoryUsage() {
+		return (long)this.count * ENTRY_SIZE;
+	}
+}
@@ -71,6 +71,15 @@ public class DescriptorIndexNode {
 		}
 	}
 
+	DescriptorIndexNode(int descriptorIdentifier, long dataOffsetIndexIdentifier,
+			long localDescriptorsOffsetIndexIdentifier, int parentDescriptorIndexIdentifier)
+	{
+		this.descriptorIdentifier = descriptorIdentifier;
+		this.dataOffsetIndexIdentifier = dataOffsetIndexIdentifier;
+		this.localDescriptorsOffsetIndexIdentifier = localDescriptorsOffsetIndexIdentifier;
+		this.parentDescriptorIndexIdentifier = parentDescriptorIndexIdentifier;
+	}
+
 	/*
 	void readData(PSTFile file)
 		throws IOException, PSTException
@@ -0,0 +1,152 @@
+/**
+ * Copyright 2010 Richard Johnson & Orin Eman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ---
+ *
+ * This file is part of java-libpst.
+ *
+ * java-libpst is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * java-libpst is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-libpst.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.pff;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * OffsetIndex is an in memory copy of the leaves of the Offset index b-tree (the block b-tree).
+ * Entries are held in sorted primitive arrays, so looking up a block is a binary search with no I/O.
+ */
+class OffsetIndex implements BtreeWalker.EntryHandler {
+
+	private long[] bid;
+	private long[] offset;
+	private int[] size;
+	private int[] cRef;
+	private int count = 0;
+	private boolean ansi;
+
+	/**
+	 * walk the whole b-tree from the root and load every leaf entry
+	 * @param pstFile
+	 * @param btreeStartOffset file offset of the root page
+	 * @throws IOException
+	 * @throws PSTException
+	 */
+	OffsetIndex(PSTFile pstFile, long btreeStartOffset)
+		throws IOException, PSTException
+	{
+		this.bid = new long[1024];
+		this.offset = new long[1024];
+		this.size = new int[1024];
+		this.cRef = new int[1024];
+		this.ansi = pstFile.getPSTFileType() == PSTFile.PST_TYPE_ANSI;
+		BtreeWalker.walk(pstFile, btreeStartOffset, false, this);
+		this.sortIfRequired();
+
+		// let go of the room left over from growing the arrays
+		if (this.bid.length != this.count) {
+			this.bid = Arrays.copyOf(this.bid, this.count);
+			this.offset = Arrays.copyOf(this.offset, this.count);
+			this.size = Arrays.copyOf(this.size, this.count);
+			this.cRef = Arrays.copyOf(this.cRef, this.count);
+		}
+	}
+
+	public void handleEntry(byte[] page, int itemOffset) {
+		int keySize = this.ansi ? 4 : 8;
+		this.bid = BtreeWalker.ensureCapacity(this.bid, this.count + 1);
+		this.offset = BtreeWalker.ensureCapacity(this.offset, this.count + 1);
+		this.size = BtreeWalker.ensureCapacity(this.size, this.count + 1);
+		this.cRef = BtreeWalker.ensureCapacity(this.cRef, this.count + 1);
+		this.bid[this.count] = PSTObject.convertLittleEndianBytesToLong(page, itemOffset, itemOffset + keySize);
+		this.offset[this.count] = PSTObject.convertLittleEndianBytesToLong(page, itemOffset + keySize, itemOffset + keySize * 2);
+		this.size[this.count] = (int)PSTObject.convertLittleEndianBytesToLong(page, itemOffset + keySize * 2, itemOffset + keySize * 2 + 2);
+		this.cRef[this.count] = (int)PSTObject.convertLittleEndianBytesToLong(page, itemOffset + keySize * 2 + 2, itemOffset + keySize * 2 + 4);
+		this.count++;
+	}
+
+	private void sortIfRequired() {
+		int[] order = BtreeWalker.getSortOrder(this.bid, this.count);
+		if (order != null) {
+			this.bid = BtreeWalker.reorder(this.bid, order);
+			this.offset = BtreeWalker.reorder(this.offset, order);
+			this.size = BtreeWalker.reorder(this.size, order);
+			this.cRef = BtreeWalker.reorder(this.cRef, order);
+		}
+	}
+
+	/**
+	 * @param identifier the block id
+	 * @return the position of the block in the index, or -1 if it isn't there
+	 */
+	int indexOf(long identifier) {
+		int low = 0;
+		int high = this.count - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			long midBid = this.bid[mid];
+			if (midBid < identifier) {
+				low = mid + 1;
+			} else if (midBid > identifier) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * find a block
+	 * @param identifier
+	 * @return the offset index item for the block
+	 * @throws PSTException if the block isn't in the index
+	 */
+	OffsetIndexItem getOffsetIndexItem(long identifier)
+		throws PSTException
+	{
+		int index = this.indexOf(identifier);
+		if (index < 0) {
+			throw new PSTException("Unable to find "+identifier);
+		}
+		return new OffsetIndexItem(this.bid[index], this.offset[index], this.size[index], this.cRef[index]);
+	}
+
+	/**
+	 * @return the number of blocks in the index
+	 */
+	int size() {
+		return this.count;
+	}
+
+	/**
+	 * @return approximate number of bytes used to hold the index
+	 */
+	long getMemoryUsage() {
+		return (long)this.count * 24;
+	}
+}
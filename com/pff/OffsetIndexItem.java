@@ -54,12 +54,19 @@ class OffsetIndexItem {
 			indexIdentifier = PSTObject.convertLittleEndianBytesToLong(data, 0, 8);
 			fileOffset = PSTObject.convertLittleEndianBytesToLong(data, 8, 16);
 			size = (int)PSTObject.convertLittleEndianBytesToLong(data, 16, 18);
-			cRef = (int)PSTObject.convertLittleEndianBytesToLong(data, 16, 18);
+			cRef = (int)PSTObject.convertLittleEndianBytesToLong(data, 18, 20);
 		}
 		//System.out.println("Data size: "+data.length);
 		
 	}
 
+	OffsetIndexItem(long indexIdentifier, long fileOffset, int size, long cRef) {
+		this.indexIdentifier = indexIdentifier;
+		this.fileOffset = fileOffset;
+		this.size = size;
+		this.cRef = cRef;
+	}
+
 	@Override
 	public String toString() {
 		return "OffsetIndexItem\n"+
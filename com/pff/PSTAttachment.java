@@ -64,18 +64,26 @@ public class PSTAttachment extends PSTObject {
 	{
 		PSTNodeInputStream in = null;
 		if ( getIntItem(0x3705) == PSTAttachment.ATTACHMENT_METHOD_EMBEDDED ) {
-			PSTTableBCItem item = items.get(0x3701);
+			PSTTableBCItem item = this.getItem(0x3701);
 			if ( item.entryValueType == 0x0102 ) {
 				if ( !item.isExternalValueReference )
 				{
-					in = new PSTNodeInputStream(this.pstFile, item.data);
+					byte[] data = item.getData();
+					if ( data == null ) {
+						throw new PSTException("Unable to read the embedded message of the attachment");
+					}
+					in = new PSTNodeInputStream(this.pstFile, data);
 				} else {
 					// We are in trouble!
 					throw new PSTException("External reference in getEmbeddedPSTMessage()!\n");
 				}
 			} else if ( item.entryValueType == 0x000D ) {
-				int descriptorItem = (int)PSTObject.convertLittleEndianBytesToLong(item.data, 0, 4);
-				//PSTObject.printHexFormatted(item.data, true);
+				byte[] data = item.getData();
+				if ( data == null ) {
+					throw new PSTException("Unable to read the embedded message reference of the attachment");
+				}
+				int descriptorItem = (int)PSTObject.convertLittleEndianBytesToLong(data, 0, 4);
+				//PSTObject.printHexFormatted(item.getData(), true);
 				PSTDescriptorItem descriptorItemNested = this.localDescriptorItems.get(descriptorItem);
 				in = new PSTNodeInputStream(this.pstFile, descriptorItemNested);
 				this.localDescriptorItems.putAll(pstFile.getPSTDescriptorItems(descriptorItemNested.subNodeOffsetIndexIdentifier));
@@ -110,17 +118,25 @@ public class PSTAttachment extends PSTObject {
 		return null;
 	}
 	
+	/**
+	 * get a stream over the attachment data.
+	 * The stream is a PSTNodeInputStream, which can also be read as a ReadableByteChannel.
+	 */
 	public InputStream getFileInputStream()
 		throws IOException, PSTException
 	{
 		
-		PSTTableBCItem attachmentDataObject = items.get(0x3701);
+		PSTTableBCItem attachmentDataObject = this.getItem(0x3701);
 
 		if (attachmentDataObject.isExternalValueReference) {
 			PSTDescriptorItem descriptorItemNested = this.localDescriptorItems.get(attachmentDataObject.entryValueReference);
 			return new PSTNodeInputStream(this.pstFile, descriptorItemNested);
 		} else {
-			return new PSTNodeInputStream(this.pstFile, attachmentDataObject.data);
+			byte[] data = attachmentDataObject.getData();
+			if ( data == null ) {
+				throw new PSTException("Unable to read the attachment data");
+			}
+			return new PSTNodeInputStream(this.pstFile, data);
 		}
 
 	}
@@ -128,7 +144,7 @@ public class PSTAttachment extends PSTObject {
 	public int getFilesize()
 		throws PSTException, IOException
 	{
-		PSTTableBCItem attachmentDataObject = items.get(0x3701);
+		PSTTableBCItem attachmentDataObject = this.getItem(0x3701);
 		if (attachmentDataObject.isExternalValueReference) {
 			PSTDescriptorItem descriptorItemNested = this.localDescriptorItems.get(attachmentDataObject.entryValueReference);
 			if (descriptorItemNested == null) {
@@ -137,7 +153,11 @@ public class PSTAttachment extends PSTObject {
 			return descriptorItemNested.getDataSize();
 		} else {
 			// raw attachment data, right there!
-			return attachmentDataObject.data.length;
+			byte[] data = attachmentDataObject.getData();
+			if ( data == null ) {
+				throw new PSTException("Unable to read the attachment data");
+			}
+			return data.length;
 		}
 		
 	}
@@ -0,0 +1,246 @@
+/**
+ * Copyright 2010 Richard Johnson & Orin Eman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ---
+ *
+ * This file is part of java-libpst.
+ *
+ * java-libpst is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * java-libpst is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-libpst.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.pff;
+
+import java.nio.ByteBuffer;
+
+/**
+ * PSTCrypt decodes (and encodes) the data blocks of encrypted PST files.
+ * Two algorithms are used by Outlook:
+ * <ul>
+ * <li>NDB_CRYPT_PERMUTE, "compressible" encryption: a simple byte substitution</li>
+ * <li>NDB_CRYPT_CYCLIC, "high" encryption: three substitutions mixed with a key derived from the block id,
+ * that moves along with the position in the block</li>
+ * </ul>
+ * Everything is done in place on ranges of arrays or buffers, with byte lookup tables and no allocation.
+ * Because the cyclic key depends on where a byte is in its block, decoding a range needs the
+ * id of the block and the position of the range within that block.
+ */
+public abstract class PSTCrypt {
+
+	// substitution tables from the PST spec, mpbbR, mpbbS and mpbbI.
+	// mpbbI is the same as PSTObject.compEnc and mpbbR is its inverse.
+	private static final int[] mpbbS = {
+	    0x14, 0x53, 0x0f, 0x56, 0xb3, 0xc8, 0x7a, 0x9c, 0xeb, 0x65, 0x48, 0x17, 0x16, 0x15, 0x9f, 0x02,
+	    0xcc, 0x54, 0x7c, 0x83, 0x00, 0x0d, 0x0c, 0x0b, 0xa2, 0x62, 0xa8, 0x76, 0xdb, 0xd9, 0xed, 0xc7,
+	    0xc5, 0xa4, 0xdc, 0xac, 0x85, 0x74, 0xd6, 0xd0, 0xa7, 0x9b, 0xae, 0x9a, 0x96, 0x71, 0x66, 0xc3,
+	    0x63, 0x99, 0xb8, 0xdd, 0x73, 0x92, 0x8e, 0x84, 0x7d, 0xa5, 0x5e, 0xd1, 0x5d, 0x93, 0xb1, 0x57,
+	    0x51, 0x50, 0x80, 0x89, 0x52, 0x94, 0x4f, 0x4e, 0x0a, 0x6b, 0xbc, 0x8d, 0x7f, 0x6e, 0x47, 0x46,
+	    0x41, 0x40, 0x44, 0x01, 0x11, 0xcb, 0x03, 0x3f, 0xf7, 0xf4, 0xe1, 0xa9, 0x8f, 0x3c, 0x3a, 0xf9,
+	    0xfb, 0xf0, 0x19, 0x30, 0x82, 0x09, 0x2e, 0xc9, 0x9d, 0xa0, 0x86, 0x49, 0xee, 0x6f, 0x4d, 0x6d,
+	    0xc4, 0x2d, 0x81, 0x34, 0x25, 0x87, 0x1b, 0x88, 0xaa, 0xfc, 0x06, 0xa1, 0x12, 0x38, 0xfd, 0x4c,
+	    0x42, 0x72, 0x64, 0x13, 0x37, 0x24, 0x6a, 0x75, 0x77, 0x43, 0xff, 0xe6, 0xb4, 0x4b, 0x36, 0x5c,
+	    0xe4, 0xd8, 0x35, 0x3d, 0x45, 0xb9, 0x2c, 0xec, 0xb7, 0x31, 0x2b, 0x29, 0x07, 0x68, 0xa3, 0x0e,
+	    0x69, 0x7b, 0x18, 0x9e, 0x21, 0x39, 0xbe, 0x28, 0x1a, 0x5b, 0x78, 0xf5, 0x23, 0xca, 0x2a, 0xb0,
+	    0xaf, 0x3e, 0xfe, 0x04, 0x8c, 0xe7, 0xe5, 0x98, 0x32, 0x95, 0xd3, 0xf6, 0x4a, 0xe8, 0xa6, 0xea,
+	    0xe9, 0xf3, 0xd5, 0x2f, 0x70, 0x20, 0xf2, 0x1f, 0x05, 0x67, 0xad, 0x55, 0x10, 0xce, 0xcd, 0xe3,
+	    0x27, 0x3b, 0xda, 0xba, 0xd7, 0xc2, 0x26, 0xd4, 0x91, 0x1d, 0xd2, 0x1c, 0x22, 0x33, 0xf8, 0xfa,
+	    0xf1, 0x5a, 0xef, 0xcf, 0x90, 0xb6, 0x8b, 0xb5, 0xbd, 0xc0, 0xbf, 0x08, 0x97, 0x1e, 0x6c, 0xe2,
+	    0x61, 0xe0, 0xc6, 0xc1, 0x59, 0xab, 0xbb, 0x58, 0xde, 0x5f, 0xdf, 0x60, 0x79, 0x7e, 0xb2, 0x8a
+	};
+
+	private static final byte[] tableR = new byte[256];
+	private static final byte[] tableS = new byte[256];
+	private static final byte[] tableI = new byte[256];
+	// the middle of the cyclic algorithm (+hi, S, -hi, I) only depends on the high byte of the key,
+	// so it is folded into one table indexed by (hi << 8) | value
+	private static final byte[] tableSI = new byte[256 * 256];
+	static {
+		for (int x = 0; x < 256; x++) {
+			tableI[x] = (byte)PSTObject.compEnc[x];
+			tableR[PSTObject.compEnc[x]] = (byte)x;
+			tableS[x] = (byte)mpbbS[x];
+		}
+		for (int hi = 0; hi < 256; hi++) {
+			for (int x = 0; x < 256; x++) {
+				tableSI[(hi << 8) | x] = tableI[(tableS[(x + hi) & 0xff] - hi) & 0xff];
+			}
+		}
+	}
+
+	static final PSTCrypt permute = new Permute();
+	static final PSTCrypt cyclic = new Cyclic();
+
+	/**
+	 * get the decoder for an encryption type
+	 * @param encryptionType one of the PSTFile.ENCRYPTION_TYPE_ values
+	 * @return the decoder, or null for PSTFile.ENCRYPTION_TYPE_NONE
+	 * @throws PSTException if the encryption type isn't known
+	 */
+	public static PSTCrypt getInstance(int encryptionType)
+		throws PSTException
+	{
+		switch (encryptionType) {
+			case PSTFile.ENCRYPTION_TYPE_NONE:
+				return null;
+			case PSTFile.ENCRYPTION_TYPE_COMPRESSIBLE:
+				return permute;
+			case PSTFile.ENCRYPTION_TYPE_CYCLIC:
+				return cyclic;
+			default:
+				throw new PSTException("Unsupported encryption type: "+encryptionType);
+		}
+	}
+
+	/**
+	 * @return the PSTFile.ENCRYPTION_TYPE_ value this decodes
+	 */
+	public abstract int getEncryptionType();
+
+	/**
+	 * decode part of an array in place
+	 * @param data
+	 * @param offset start of the range in the array
+	 * @param length number of bytes to decode
+	 * @param bid id of the block the data came from
+	 * @param blockOffset position of the start of the range within its block
+	 */
+	public abstract void decode(byte[] data, int offset, int length, long bid, int blockOffset);
+
+	/**
+	 * encode part of an array in place, the reverse of decode
+	 * @param data
+	 * @param offset start of the range in the array
+	 * @param length number of bytes to encode
+	 * @param bid id of the block the data is for
+	 * @param blockOffset position of the start of the range within its block
+	 */
+	public abstract void encode(byte[] data, int offset, int length, long bid, int blockOffset);
+
+	/**
+	 * decode a single byte
+	 * @param value the byte (0-255)
+	 * @param bid id of the block the byte came from
+	 * @param blockOffset position of the byte within its block
+	 * @return the decoded value (0-255)
+	 */
+	public abstract int decode(int value, long bid, int blockOffset);
+
+	/**
+	 * decode part of a buffer in place, the position of the buffer is left alone
+	 * @param data
+	 * @param offset absolute index of the start of the range in the buffer
+	 * @param length number of bytes to decode
+	 * @param bid id of the block the data came from
+	 * @param blockOffset position of the start of the range within its block
+	 */
+	public void decode(ByteBuffer data, int offset, int length, long bid, int blockOffset) {
+		if (data.hasArray()) {
+			this.decode(data.array(), data.arrayOffset() + offset, length, bid, blockOffset);
+			return;
+		}
+		for (int x = 0; x < length; x++) {
+			data.put(offset + x, (byte)this.decode(data.get(offset + x) & 0xff, bid, blockOffset + x));
+		}
+	}
+
+	/**
+	 * NDB_CRYPT_PERMUTE
+	 */
+	private static class Permute extends PSTCrypt {
+
+		@Override
+		public int getEncryptionType() {
+			return PSTFile.ENCRYPTION_TYPE_COMPRESSIBLE;
+		}
+
+		@Override
+		public void decode(byte[] data, int offset, int length, long bid, int blockOffset) {
+			substitute(tableI, data, offset, length);
+		}
+
+		@Override
+		public void encode(byte[] data, int offset, int length, long bid, int blockOffset) {
+			substitute(tableR, data, offset, length);
+		}
+
+		@Override
+		public int decode(int value, long bid, int blockOffset) {
+			return tableI[value] & 0xff;
+		}
+
+		private static void substitute(byte[] table, byte[] data, int offset, int length) {
+			int end = offset + length;
+			for (int x = offset; x < end; x++) {
+				data[x] = table[data[x] & 0xff];
+			}
+		}
+	}
+
+	/**
+	 * NDB_CRYPT_CYCLIC, the same operation both encodes and decodes
+	 */
+	private static class Cyclic extends PSTCrypt {
+
+		@Override
+		public int getEncryptionType() {
+			return PSTFile.ENCRYPTION_TYPE_CYCLIC;
+		}
+
+		/**
+		 * the key is the low 32 bits of the block id folded into 16 bits
+		 */
+		private static int startKey(long bid, int blockOffset) {
+			long key = bid & 0xffffffffL;
+			return (int)((key ^ (key >>> 16)) & 0xffff) + blockOffset;
+		}
+
+		@Override
+		public void decode(byte[] data, int offset, int length, long bid, int blockOffset) {
+			int w = startKey(bid, blockOffset);
+			int end = offset + length;
+			for (int x = offset; x < end; x++) {
+				int lo = w & 0xff;
+				int b = tableR[(data[x] + lo) & 0xff];
+				b = tableSI[(w & 0xff00) | (b & 0xff)];
+				data[x] = (byte)(b - lo);
+				w++;
+			}
+		}
+
+		@Override
+		public void encode(byte[] data, int offset, int length, long bid, int blockOffset) {
+			this.decode(data, offset, length, bid, blockOffset);
+		}
+
+		@Override
+		public int decode(int value, long bid, int blockOffset) {
+			int w = startKey(bid, blockOffset);
+			int lo = w & 0xff;
+			int b = tableR[(value + lo) & 0xff];
+			b = tableSI[(w & 0xff00) | (b & 0xff)];
+			return (b - lo) & 0xff;
+		}
+	}
+}
@@ -43,21 +43,22 @@ import java.util.*;
  */
 class PSTDescriptorItem
 {
-	PSTDescriptorItem(byte[] data, int offset, PSTFile pstFile)
+	PSTDescriptorItem(PSTNodeInputStream in, int offset, PSTFile pstFile)
+		throws IOException, PSTException
 	{
 		this.pstFile = pstFile;
 
 		if (pstFile.getPSTFileType() == PSTFile.PST_TYPE_ANSI) {
-			descriptorIdentifier = (int)PSTObject.convertLittleEndianBytesToLong(data, offset, offset+4);
-			offsetIndexIdentifier = ((int)PSTObject.convertLittleEndianBytesToLong(data, offset+4, offset+8))
+			descriptorIdentifier = (int)in.readU32(offset);
+			offsetIndexIdentifier = ((int)in.readU32(offset+4))
 										& 0xfffffffe;
-			subNodeOffsetIndexIdentifier = (int)PSTObject.convertLittleEndianBytesToLong(data, offset+8, offset+12)
+			subNodeOffsetIndexIdentifier = (int)in.readU32(offset+8)
 										& 0xfffffffe;
 		} else {
-			descriptorIdentifier = (int)PSTObject.convertLittleEndianBytesToLong(data, offset, offset+4);
-			offsetIndexIdentifier = ((int)PSTObject.convertLittleEndianBytesToLong(data, offset+8, offset+16))
+			descriptorIdentifier = (int)in.readU32(offset);
+			offsetIndexIdentifier = ((int)in.readU64(offset+8))
 										& 0xfffffffe;
-			subNodeOffsetIndexIdentifier = (int)PSTObject.convertLittleEndianBytesToLong(data, offset+16, offset+24)
+			subNodeOffsetIndexIdentifier = (int)in.readU64(offset+16)
 										& 0xfffffffe;
 		}
 	}
@@ -69,7 +70,20 @@ class PSTDescriptorItem
 			return dataBlockData;
 		}
 
-		PSTNodeInputStream in = pstFile.readLeaf(offsetIndexIdentifier);
+		return getData(pstFile.getOffsetIndexNode(offsetIndexIdentifier));
+	}
+
+	/**
+	 * read the data through an offset index item that has already been looked up
+	 */
+	byte[] getData(OffsetIndexItem offsetItem)
+		throws IOException, PSTException
+	{
+		if ( dataBlockData != null ) {
+			return dataBlockData;
+		}
+
+		PSTNodeInputStream in = new PSTNodeInputStream(pstFile, offsetItem);
 		byte[] out = new byte[(int)in.length()];
 		in.read(out);
 		dataBlockData = out;
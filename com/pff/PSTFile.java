@@ -33,7 +33,9 @@
  */
 package com.pff;
 import java.io.*;
+import java.nio.charset.Charset;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * PSTFile is the containing class that allows you to access items within a .pst file.
@@ -44,6 +46,7 @@ public class PSTFile {
 
 	public static final int ENCRYPTION_TYPE_NONE = 0;
 	public static final int ENCRYPTION_TYPE_COMPRESSIBLE = 1;
+	public static final int ENCRYPTION_TYPE_CYCLIC = 2;
 
 	private static final int MESSAGE_STORE_DESCRIPTOR_IDENTIFIER = 33;
 	private static final int ROOT_FOLDER_DESCRIPTOR_IDENTIFIER = 290;
@@ -92,17 +95,45 @@ public class PSTFile {
 	
 	// the type of encryption the files uses.
 	private int encryptionType = 0;
+	// decoder for the encryption type, null if there isn't any
+	private PSTCrypt crypt = null;
 	
 	// our all important tree.
+	// built on demand, guarded by synchronization on this
 	private LinkedHashMap<Integer, LinkedList<DescriptorIndexNode>> childrenDescriptorTree = null;
 	
 	private HashMap<Long, Integer> nameToId = new HashMap<Long, Integer>();
+	// shared between all open files, access is synchronized on the map
 	private static HashMap<Integer, Long> idToName = new HashMap<Integer, Long>();
 	private byte[] guids = null;
 	
 	private int itemCount = 0;
 	
-	private RandomAccessFile in;
+	private PSTFileContent in;
+
+	// where the roots of the two b-trees are, read from the header on open
+	private long descriptorBtreeStartOffset;
+	private long offsetBtreeStartOffset;
+
+	// recently used b-tree pages
+	private volatile BtreePageCache btreePageCache = new BtreePageCache(DEFAULT_BTREE_PAGE_CACHE_SIZE);
+
+	// recently used data blocks, decoded
+	private volatile BlockCache blockCache = new BlockCache(DEFAULT_BLOCK_CACHE_SIZE);
+
+	// reading the next run of blocks in the background
+	private boolean readAheadEnabled = false;
+	private boolean propertyValueCacheEnabled = true;
+	private ExecutorService readAheadExecutor = null;
+
+	// in memory copy of the offset index b-tree, if enabled
+	private boolean offsetIndexEnabled = false;
+	private volatile OffsetIndex offsetIndex = null;
+
+	// in memory copy of the descriptor index b-tree, if enabled
+	private boolean descriptorIndexEnabled = false;
+	private boolean descriptorIndexOffHeap = false;
+	private volatile DescriptorIndex descriptorIndex = null;
 	
 	/**
 	 * constructor
@@ -120,12 +151,25 @@ public class PSTFile {
 		throws FileNotFoundException, PSTException, IOException
 	{
 		// attempt to open the file.
-		in = new RandomAccessFile(fileName, "r");
+		this(new PSTRandomAccessFileContent(fileName));
+	}
+
+	/**
+	 * open a PST file from an already opened content source,
+	 * for example: new PSTFile(new PSTMappedFileContent(file)) to have the file memory mapped
+	 * @param content
+	 * @throws PSTException
+	 * @throws IOException
+	 */
+	public PSTFile(PSTFileContent content)
+		throws PSTException, IOException
+	{
+		in = content;
 
 		// get the first 4 bytes, should be !BDN
 		try {
 			byte[] temp = new byte[4];
-			in.read(temp);
+			in.read(0, temp);
 			String strValue = new String(temp);
 			if (!strValue.equals("!BDN")) {
 				throw new PSTException("Invalid file header: "+strValue+", expected: !BDN"); 
@@ -133,8 +177,7 @@ public class PSTFile {
 			
 			// make sure we are using a supported version of a PST...
 			byte[] fileTypeBytes = new byte[2];
-			in.seek(10);
-			in.read(fileTypeBytes);
+			in.read(10, fileTypeBytes);
 			// ANSI file types can be 14 or 15:
 			if (fileTypeBytes[0] == PSTFile.PST_TYPE_ANSI_2) {
 				fileTypeBytes[0] = PSTFile.PST_TYPE_ANSI;
@@ -148,17 +191,23 @@ public class PSTFile {
 			
 			// make sure encryption is turned off at this stage...
 			if (this.getPSTFileType() == PST_TYPE_ANSI) {
-				in.seek(461);
+				encryptionType = in.read(461);
 			} else {
-				in.seek(513);
+				encryptionType = in.read(513);
 			}
-			encryptionType = in.readByte();
-			if (encryptionType == 0x02) {
-				throw new PSTException("Only unencrypted and compressable PST files are supported at this time"); 
+
+			// find the b-trees
+			if (this.getPSTFileType() == PST_TYPE_ANSI) {
+				descriptorBtreeStartOffset = this.extractLEFileOffset(188);
+				offsetBtreeStartOffset = this.extractLEFileOffset(196);
+			} else {
+				descriptorBtreeStartOffset = this.extractLEFileOffset(224);
+				offsetBtreeStartOffset = this.extractLEFileOffset(240);
 			}
+			crypt = PSTCrypt.getInstance(encryptionType);
 			
 			// build out name to id map.
-			processNameToIdMap(in);
+			processNameToIdMap();
 			
 		}  catch (IOException err) {
 			throw new PSTException("Unable to read PST Sig", err);
@@ -173,11 +222,10 @@ public class PSTFile {
 	
 	/**
 	 * read the name-to-id map from the file and load it in
-	 * @param in
 	 * @throws IOException
 	 * @throws PSTException
 	 */
-	private void processNameToIdMap(RandomAccessFile in)
+	private void processNameToIdMap()
 		throws IOException, PSTException
 	{
 		// Create our guid map
@@ -209,9 +257,8 @@ public class PSTFile {
 		nodein.read(tmp);
 		PSTTableBC bcTable = new PSTTableBC(nodein);
 
-		HashMap<Integer, PSTTableBCItem> tableItems = (bcTable.getItems());
 		// Get the guids
-		PSTTableBCItem guidEntry = tableItems.get(2);	// PidTagNameidStreamGuid
+		PSTTableBCItem guidEntry = bcTable.getItem(2);	// PidTagNameidStreamGuid
 		guids = getData(guidEntry, localDescriptorItems);
 		int nGuids = guids.length / 16;
 		UUID[] uuidArray = new UUID[nGuids];
@@ -235,7 +282,7 @@ public class PSTFile {
 		}
 		
 		// if we have a reference to an internal descriptor
-		PSTTableBCItem mapEntries = tableItems.get(3);	//
+		PSTTableBCItem mapEntries = bcTable.getItem(3);	//
 		byte[] nameToIdByte = getData(mapEntries, localDescriptorItems);
 
 		// process the entries
@@ -255,7 +302,9 @@ public class PSTFile {
 					guidIndex = uuidIndexes[wGuid-3];
 				}
 				nameToId.put((long)dwPropertyId | ((long)guidIndex << 32), wPropIdx);
-				idToName.put(wPropIdx, (long)dwPropertyId);
+				synchronized (idToName) {
+					idToName.put(wPropIdx, (long)dwPropertyId);
+				}
 /*
 				System.out.printf("0x%08X:%04X, 0x%08X\n", dwPropertyId, guidIndex, wPropIdx);
 /**/
@@ -268,8 +317,12 @@ public class PSTFile {
 	private byte [] getData(PSTTableItem item, HashMap<Integer, PSTDescriptorItem> localDescriptorItems)
 		throws IOException, PSTException
 	{
-		if ( item.data.length != 0 ) {
-			return item.data;
+		byte[] data = item.getData();
+		if ( data == null ) {
+			throw new PSTException("Unable to read the value of item "+Integer.toHexString(item.entryType)+" in PSTFile.getData()");
+		}
+		if ( data.length != 0 ) {
+			return data;
 		}
 
 		if ( localDescriptorItems == null ) {
@@ -302,7 +355,10 @@ public class PSTFile {
 	static long getNameToIdMapKey(int id)
 		//throws PSTException
 	{
-		Long i = idToName.get(id);
+		Long i;
+		synchronized (idToName) {
+			i = idToName.get(id);
+		}
 		if ( i == null )
 		{
 			//throw new PSTException("Name to Id mapping not found");
@@ -313,89 +369,236 @@ public class PSTFile {
 
 
 
-	static private Properties propertyInternetCodePages = null;
-	static private boolean bCPFirstTime = true;
-	static String getInternetCodePageCharset(int propertyId) {
-		if ( bCPFirstTime ) {
-			bCPFirstTime = false;
-			propertyInternetCodePages = new Properties();
+	/**
+	 * A code page and the charset it is decoded with.
+	 */
+	static final class CodePage {
+		final int id;
+		final String name;
+		final Charset charset;
+		// true if bytes below 0x80 decode to the same ASCII characters
+		final boolean asciiCompatible;
+
+		CodePage(int id, String name) {
+			this.id = id;
+			this.name = name;
+			Charset found = null;
+			if (name != null) {
+				try {
+					found = Charset.forName(name);
+				} catch (Exception e) {
+					// not supported here, use the default
+				}
+			}
+			this.charset = (found != null) ? found : Charset.defaultCharset();
+
+			byte[] ascii = new byte[0x80];
+			for (int x = 0; x < ascii.length; x++) {
+				ascii[x] = (byte)x;
+			}
+			String decoded = new String(ascii, this.charset);
+			boolean compatible = decoded.length() == ascii.length;
+			for (int x = 0; compatible && x < ascii.length; x++) {
+				compatible = decoded.charAt(x) == x;
+			}
+			this.asciiCompatible = compatible;
+		}
+	}
+
+	/**
+	 * the code page used for strings that don't say what they are in
+	 */
+	static final CodePage DEFAULT_CODE_PAGE = new CodePage(-1, null);
+
+	/**
+	 * The code pages from InternetCodepages.txt, sorted on id and indexed on lower case name.
+	 * These are loaded the first time a code page is looked up and never change after that.
+	 */
+	private static class InternetCodePages {
+		static final CodePage[] codePages = load();
+		static final HashMap<String, CodePage> codePagesByName = indexNames();
+		// code pages made for names that aren't in the file
+		static final ConcurrentHashMap<String, CodePage> otherCodePages = new ConcurrentHashMap<String, CodePage>();
+
+		private static CodePage[] load() {
+			Properties properties = new Properties();
 			try {
 				InputStream propertyStream = PSTFile.class.getResourceAsStream("/InternetCodepages.txt");
-				if ( propertyStream != null ) {
-					propertyInternetCodePages.load(propertyStream);
-				} else {
-					propertyInternetCodePages = null;
+				if ( propertyStream == null ) {
+					return new CodePage[0];
 				}
-			} catch (FileNotFoundException e) {
-				propertyInternetCodePages = null;
-				e.printStackTrace();
+				properties.load(propertyStream);
+				propertyStream.close();
 			} catch (IOException e) {
-				propertyInternetCodePages = null;
 				e.printStackTrace();
+				return new CodePage[0];
+			}
+
+			CodePage[] codePages = new CodePage[properties.size()];
+			int numberOfCodePages = 0;
+			for (String key : properties.stringPropertyNames()) {
+				try {
+					codePages[numberOfCodePages] = new CodePage(Integer.parseInt(key.trim()), properties.getProperty(key));
+					numberOfCodePages++;
+				} catch (NumberFormatException e) {
+					// not a code page
+				}
 			}
+			codePages = Arrays.copyOf(codePages, numberOfCodePages);
+			Arrays.sort(codePages, new Comparator<CodePage>() {
+				public int compare(CodePage a, CodePage b) {
+					return a.id < b.id ? -1 : (a.id == b.id ? 0 : 1);
+				}
+			});
+			return codePages;
 		}
-		if ( propertyInternetCodePages != null ) {
-			return propertyInternetCodePages.getProperty(propertyId+"");
+
+		private static HashMap<String, CodePage> indexNames() {
+			HashMap<String, CodePage> index = new HashMap<String, CodePage>();
+			// the lowest id wins where a name is used more than once
+			for (int x = codePages.length - 1; x >= 0; x--) {
+				index.put(codePages[x].name.toLowerCase(Locale.ENGLISH), codePages[x]);
+			}
+			return index;
 		}
-		return null;
-	}
 
+		static CodePage find(String name) {
+			String key = name.toLowerCase(Locale.ENGLISH);
+			CodePage codePage = codePagesByName.get(key);
+			if (codePage == null) {
+				codePage = otherCodePages.get(key);
+				if (codePage == null) {
+					codePage = new CodePage(-1, name);
+					CodePage existing = otherCodePages.putIfAbsent(key, codePage);
+					if (existing != null) {
+						codePage = existing;
+					}
+				}
+			}
+			return codePage;
+		}
 
-	static private Properties propertyNames = null;
-	static private boolean bFirstTime = true;
-	
-	static String getPropertyName(int propertyId, boolean bNamed) {
-		if ( bFirstTime ) {
-			bFirstTime = false;
-			propertyNames = new Properties();
-			try {
-				InputStream propertyStream = PSTFile.class.getResourceAsStream("/PropertyNames.txt");
-				if ( propertyStream != null ) {
-					propertyNames.load(propertyStream);
+		static CodePage find(int id) {
+			int low = 0;
+			int high = codePages.length - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				if (codePages[mid].id < id) {
+					low = mid + 1;
+				} else if (codePages[mid].id > id) {
+					high = mid - 1;
 				} else {
-					propertyNames = null;
+					return codePages[mid];
 				}
-			} catch (FileNotFoundException e) {
-				propertyNames = null;
-				e.printStackTrace();
-			} catch (IOException e) {
-				propertyNames = null;
-				e.printStackTrace();
 			}
+			return null;
 		}
+	}
 
-		if ( propertyNames != null ) {
-			String key = String.format((bNamed ? "%08X" : "%04X"), propertyId);
-			return propertyNames.getProperty(key);
+	static String getInternetCodePageCharset(int propertyId) {
+		CodePage codePage = InternetCodePages.find(propertyId);
+		if ( codePage != null ) {
+			return codePage.name;
 		}
-
 		return null;
 	}
 
+	/**
+	 * get the code page for an id, such as the value of PidTagMessageCodepage
+	 * @return the code page, the default code page if the id isn't known
+	 */
+	static CodePage getCodePage(int id) {
+		CodePage codePage = InternetCodePages.find(id);
+		if ( codePage != null ) {
+			return codePage;
+		}
+		return DEFAULT_CODE_PAGE;
+	}
+
+	/**
+	 * get the code page for a charset name
+	 * @return the code page, the default code page if there is no name
+	 */
+	static CodePage getCodePage(String name) {
+		if ( name == null ) {
+			return DEFAULT_CODE_PAGE;
+		}
+		return InternetCodePages.find(name);
+	}
+
+
+	/**
+	 * get the name of a property, such as PidTagSubject
+	 * @param propertyId the property id, or the long id (LID) of a named property
+	 * @param bNamed true for a long id
+	 * @return the name, or null if it isn't known
+	 */
+	public static String getPropertyName(int propertyId, boolean bNamed) {
+		return PSTPropertyNames.getName(propertyId, bNamed);
+	}
+
+	/**
+	 * get the id of a property from its name, such as PidTagSubject
+	 * @return the property id, -1 if the name isn't known
+	 */
+	public static int getPropertyId(String name) {
+		return PSTPropertyNames.getPropertyId(name);
+	}
+
+	/**
+	 * get the long id (LID) of a named property from its name, such as PidLidLocation
+	 * @return the long id, -1 if the name isn't known
+	 */
+	public static int getNamedPropertyId(String name) {
+		return PSTPropertyNames.getNamedPropertyId(name);
+	}
+
 	static String getPropertyDescription(int entryType, int entryValueType) {
-		String ret = "";
+		StringBuilder ret = new StringBuilder(48);
 		if ( entryType < 0x8000 ) {
 			String name = PSTFile.getPropertyName(entryType, false);
 			if ( name != null ) {
-				ret = String.format("%s:%04X: ", name, entryValueType);
+				ret.append(name);
 			} else {
-				ret = String.format("0x%04X:%04X: ", entryType, entryValueType);
+				appendHex(ret.append("0x"), entryType);
 			}
 		} else {
 			long type = PSTFile.getNameToIdMapKey(entryType);
 			if ( type == -1 ) {
-				ret = String.format("0xFFFF(%04X):%04X: ", entryType, entryValueType);
+				ret.append("0xFFFF");
 			} else {
 				String name = PSTFile.getPropertyName((int)type, true);
 				if ( name != null ) {
-					ret = String.format("%s(%04X):%04X: ", name, entryType, entryValueType);
+					ret.append(name);
 				} else {
-					ret = String.format("0x%04X(%04X):%04X: ", type, entryType, entryValueType);
+					appendHex(ret.append("0x"), type);
 				}
 			}
+			appendHex(ret.append('('), entryType).append(')');
 		}
+		appendHex(ret.append(':'), entryValueType).append(": ");
 
-		return ret;
+		return ret.toString();
+	}
+
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+	private static StringBuilder appendHex(StringBuilder output, int value) {
+		return appendHex(output, value & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * append a value in upper case hex, at least 4 digits long
+	 */
+	private static StringBuilder appendHex(StringBuilder output, long value) {
+		int digits = 4;
+		while ( digits < 16 && (value >>> (digits * 4)) != 0 ) {
+			digits++;
+		}
+		for ( int x = digits - 1; x >= 0; x-- ) {
+			output.append(HEX_DIGITS[(int)(value >>> (x * 4)) & 0xF]);
+		}
+		return output;
 	}
 
 	/**
@@ -405,6 +608,9 @@ public class PSTFile {
 	protected void finalize()
 		throws IOException
 	{
+		if (this.readAheadExecutor != null) {
+			this.readAheadExecutor.shutdown();
+		}
 		in.close();
 	}
 	
@@ -415,11 +621,30 @@ public class PSTFile {
 	public int getEncryptionType() {
 		return this.encryptionType;
 	}
+
+	/**
+	 * get the decoder for the file's data blocks
+	 * @return the decoder, or null if the file isn't encrypted
+	 */
+	public PSTCrypt getCrypt() {
+		return this.crypt;
+	}
 	
 	/**
 	 * get the handle to the file we are currently accessing
+	 * @return the file handle, or null if the file isn't being read through a RandomAccessFile
 	 */
 	public RandomAccessFile getFileHandle() {
+		if (this.in instanceof PSTRandomAccessFileContent) {
+			return ((PSTRandomAccessFileContent)this.in).getFile();
+		}
+		return null;
+	}
+
+	/**
+	 * get the source all reads from the file go through
+	 */
+	public PSTFileContent getContentHandle() {
 		return this.in;
 	}
 	
@@ -466,6 +691,139 @@ public class PSTFile {
 	}
 	
 	
+	/**
+	 * Read a whole block, served from the block cache when we can.
+	 * Data blocks are decoded, internal blocks (arrays of other blocks) are returned as they are.
+	 * The array returned may be shared, it must not be modified.
+	 * @param offsetItem the block to read
+	 * @return the block data
+	 * @throws IOException
+	 */
+	byte[] readBlock(OffsetIndexItem offsetItem)
+		throws IOException
+	{
+		return this.readBlock(offsetItem.indexIdentifier, offsetItem.fileOffset, offsetItem.size);
+	}
+
+	/**
+	 * Read a whole block we already know the location of.
+	 * @param bid the block id
+	 * @param fileOffset where the block is in the file
+	 * @param size the size of the block
+	 * @return the block data, which must not be modified
+	 * @throws IOException
+	 */
+	byte[] readBlock(long bid, long fileOffset, int size)
+		throws IOException
+	{
+		BlockCache cache = this.blockCache;
+		byte[] data = null;
+		if (cache != null) {
+			data = cache.get(bid);
+			if (data != null) {
+				return data;
+			}
+		}
+		data = new byte[size];
+		in.read(fileOffset, data);
+		if ((bid & 0x02) == 0 && this.crypt != null) {
+			this.crypt.decode(data, 0, data.length, bid, 0);
+		}
+		if (cache != null) {
+			cache.put(bid, data);
+		}
+		return data;
+	}
+
+	/**
+	 * Set the byte budget of the data block cache.
+	 * Decoded blocks are kept in memory so tables and items that are opened again
+	 * don't have to be read and decoded again. Any blocks already cached are dropped.
+	 * @param maximumSize maximum number of bytes of blocks to keep, 0 to turn the cache off
+	 */
+	public void setBlockCacheSize(long maximumSize) {
+		if (maximumSize <= 0) {
+			this.blockCache = null;
+		} else {
+			this.blockCache = new BlockCache(maximumSize);
+		}
+	}
+
+	/**
+	 * @return the byte budget of the data block cache, 0 if it is turned off
+	 */
+	public long getBlockCacheSize() {
+		BlockCache cache = this.blockCache;
+		return cache == null ? 0 : cache.getMaximumSize();
+	}
+
+	/**
+	 * @return number of block reads served from the cache
+	 */
+	public long getBlockCacheHits() {
+		BlockCache cache = this.blockCache;
+		return cache == null ? 0 : cache.getHits();
+	}
+
+	/**
+	 * @return number of block reads that had to go to the file
+	 */
+	public long getBlockCacheMisses() {
+		BlockCache cache = this.blockCache;
+		return cache == null ? 0 : cache.getMisses();
+	}
+
+	/**
+	 * Read ahead when streaming items that span a number of blocks.
+	 * Blocks that sit next to each other in the file are always read together,
+	 * with read ahead turned on the next group is read in the background while the current one is being used.
+	 * This helps most with large attachments on slow or networked storage.
+	 * @param enabled
+	 */
+	public void setReadAheadEnabled(boolean enabled) {
+		this.readAheadEnabled = enabled;
+	}
+
+	/**
+	 * @return true if items are read ahead in the background
+	 */
+	public boolean isReadAheadEnabled() {
+		return this.readAheadEnabled;
+	}
+
+	/**
+	 * Keep the property values of an item once they have been read (the default),
+	 * turn this off to read them from the file each time they are asked for.
+	 * This only changes items loaded after it is called.
+	 * @param enabled
+	 */
+	public void setPropertyValueCacheEnabled(boolean enabled) {
+		this.propertyValueCacheEnabled = enabled;
+	}
+
+	/**
+	 * @return true if the property values of items are kept once read
+	 */
+	public boolean isPropertyValueCacheEnabled() {
+		return this.propertyValueCacheEnabled;
+	}
+
+	/**
+	 * get the threads used for read ahead, they are only created when first needed
+	 */
+	synchronized ExecutorService getReadAheadExecutor() {
+		if (this.readAheadExecutor == null) {
+			this.readAheadExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "PSTFile read ahead");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return this.readAheadExecutor;
+	}
+
 	public int getLeafSize(long bid)
 		throws IOException, PSTException
 	{
@@ -479,8 +837,7 @@ public class PSTFile {
 	
 		// we only need the first 8 bytes
 		byte[] data = new byte[8];
-		in.seek(offsetItem.fileOffset);
-		in.read(data);
+		in.read(offsetItem.fileOffset, data);
 	
 		// we are an array, get the sum of the sizes...
 		return (int)PSTObject.convertLittleEndianBytesToLong(data, 4, 8);
@@ -490,7 +847,6 @@ public class PSTFile {
 	 * Read a file offset from the file
 	 * PST Files have this tendency to store file offsets (pointers) in 8 little endian bytes.
 	 * Convert this to a long for seeking to.
-	 * @param in handle for PST file
 	 * @param startOffset where to read the 8 bytes from
 	 * @return long representing the read location
 	 * @throws IOException
@@ -500,9 +856,8 @@ public class PSTFile {
 	{
 		long offset = 0;
 		if (this.getPSTFileType() == PSTFile.PST_TYPE_ANSI) {
-			in.seek(startOffset);
 			byte[] temp = new byte[4];
-			in.read(temp);
+			in.read(startOffset, temp);
 			offset |= temp[3] & 0xff;
 			offset <<= 8;
 			offset |= temp[2] & 0xff;
@@ -511,9 +866,8 @@ public class PSTFile {
 			offset <<= 8;
 			offset |= temp[0] & 0xff;
 		} else {
-			in.seek(startOffset);
 			byte[] temp = new byte[8];
-			in.read(temp);
+			in.read(startOffset, temp);
 			offset = temp[7] & 0xff;
 			long tmpLongValue;
 			for (int x = 6; x >= 0; x--) {
@@ -526,166 +880,156 @@ public class PSTFile {
 		return offset;
 	}
 
+	/**
+	 * B-Tree pages are always 512 bytes
+	 */
+	static final int BTREE_PAGE_SIZE = 512;
+
+	/**
+	 * default byte budget of the b-tree page cache, 1MB
+	 */
+	public static final long DEFAULT_BTREE_PAGE_CACHE_SIZE = 1024 * 1024;
+
+	/**
+	 * default byte budget of the data block cache, 4MB
+	 */
+	public static final long DEFAULT_BLOCK_CACHE_SIZE = 4 * 1024 * 1024;
+
+	/**
+	 * Read a whole B-Tree page in one go, entries are then parsed out of the array
+	 * rather than going back to the file for each one.
+	 * @param pageOffset file offset of the page
+	 * @return the page
+	 * @throws IOException
+	 * @throws PSTException
+	 */
+	byte[] readBtreePage(long pageOffset)
+		throws IOException, PSTException
+	{
+		BtreePageCache cache = this.btreePageCache;
+		byte[] page = null;
+		if (cache != null) {
+			page = cache.get(pageOffset);
+			if (page != null) {
+				return page;
+			}
+		}
+		page = new byte[BTREE_PAGE_SIZE];
+		if (in.read(pageOffset, page) != BTREE_PAGE_SIZE) {
+			throw new PSTException("Unable to read b-tree page at "+pageOffset);
+		}
+		if (cache != null) {
+			cache.put(pageOffset, page);
+		}
+		return page;
+	}
+
+	/**
+	 * Set the byte budget of the b-tree page cache.
+	 * Recently used b-tree pages are kept in memory, so the top levels of the trees aren't read
+	 * from the file on every lookup. Any pages already cached are dropped.
+	 * @param maximumSize maximum number of bytes of pages to keep, 0 to turn the cache off
+	 */
+	public void setBtreePageCacheSize(long maximumSize) {
+		if (maximumSize <= 0) {
+			this.btreePageCache = null;
+		} else {
+			this.btreePageCache = new BtreePageCache(maximumSize);
+		}
+	}
+
+	/**
+	 * @return the byte budget of the b-tree page cache, 0 if it is turned off
+	 */
+	public long getBtreePageCacheSize() {
+		BtreePageCache cache = this.btreePageCache;
+		return cache == null ? 0 : cache.getMaximumSize();
+	}
+
+	/**
+	 * @return number of b-tree page reads served from the cache
+	 */
+	public long getBtreePageCacheHits() {
+		BtreePageCache cache = this.btreePageCache;
+		return cache == null ? 0 : cache.getHits();
+	}
+
+	/**
+	 * @return number of b-tree page reads that had to go to the file
+	 */
+	public long getBtreePageCacheMisses() {
+		BtreePageCache cache = this.btreePageCache;
+		return cache == null ? 0 : cache.getMisses();
+	}
+
 	/**
 	 * Generic function used by getOffsetIndexNode and getDescriptorIndexNode for navigating the PST B-Trees
-	 * @param in
 	 * @param index
 	 * @param descTree
 	 * @return
 	 * @throws IOException
 	 * @throws PSTException
 	 */
-	private byte[] findBtreeItem(RandomAccessFile in, long index, boolean descTree)
+	private byte[] findBtreeItem(long index, boolean descTree)
 		throws IOException, PSTException
 	{
 
-		long btreeStartOffset;
 		// first find the starting point for the offset index
-		if (this.getPSTFileType() == PST_TYPE_ANSI) {
-			btreeStartOffset = this.extractLEFileOffset(196);
-			if (descTree) {
-				btreeStartOffset = this.extractLEFileOffset(188);
-			}
+		long btreeStartOffset = descTree ? this.descriptorBtreeStartOffset : this.offsetBtreeStartOffset;
+
+		// sizes and positions of everything in a page
+		boolean ansi = this.getPSTFileType() == PST_TYPE_ANSI;
+		int pageTypeOffset = ansi ? 500 : 496;
+		int countOffset = ansi ? 496 : 488;
+		int keySize = ansi ? 4 : 8;
+		int branchItemSize = ansi ? 12 : 24;
+		int leafItemSize;
+		if (descTree) {
+			leafItemSize = ansi ? 16 : 32;
 		} else {
-			btreeStartOffset = this.extractLEFileOffset(240);
-			if (descTree) {
-				btreeStartOffset = this.extractLEFileOffset(224);
-			}
+			leafItemSize = ansi ? 12 : 24;
 		}
+		byte pageType = (byte)(descTree ? 0x81 : 0x80);
 
 		// okay, what we want to do is navigate the tree until you reach the bottom....
 		// try and read the index b-tree
-		byte[] temp = new byte[2];
-		if (this.getPSTFileType() == PST_TYPE_ANSI) {
-			in.seek(btreeStartOffset+500);
-		} else {
-			in.seek(btreeStartOffset+496);
-		}
-		in.read(temp);
-		while	((temp[0] == 0xffffff80 && temp[1] == 0xffffff80 && !descTree) ||
-				 (temp[0] == 0xffffff81 && temp[1] == 0xffffff81 && descTree))
+		byte[] page = readBtreePage(btreeStartOffset);
+		while (page[pageTypeOffset] == pageType && page[pageTypeOffset+1] == pageType)
 		{
-
-			// get the rest of the data....
-			byte[] branchNodeItems;
-			if (this.getPSTFileType() == PST_TYPE_ANSI) {
-				branchNodeItems = new byte[496];
-			} else {
-				branchNodeItems = new byte[488];
-			}
-			in.seek(btreeStartOffset);
-			in.read(branchNodeItems);
-
-			int numberOfItems = in.read();
-			in.read(); // maxNumberOfItems
-			in.read(); // itemSize
-			int levelsToLeaf = in.read();
+			int numberOfItems = page[countOffset] & 0xff;
+			// maxNumberOfItems and itemSize follow
+			int levelsToLeaf = page[countOffset+3] & 0xff;
 
 			if (levelsToLeaf > 0) {
-				boolean found = false;
-				for (int x = 0; x < numberOfItems; x++) {
-					if (this.getPSTFileType() == PST_TYPE_ANSI) {
-						long indexIdOfFirstChildNode = extractLEFileOffset(btreeStartOffset + (x * 12));
-						if (indexIdOfFirstChildNode > index) {
-							// get the address for the child first node in this group
-							btreeStartOffset = extractLEFileOffset(btreeStartOffset+((x-1) * 12)+8);
-							in.seek(btreeStartOffset+500);
-							in.read(temp);
-							found = true;
-							break;
-						}
-					} else {
-						long indexIdOfFirstChildNode = extractLEFileOffset(btreeStartOffset + (x * 24));
-						if (indexIdOfFirstChildNode > index) {
-							// get the address for the child first node in this group
-							btreeStartOffset = extractLEFileOffset(btreeStartOffset+((x-1) * 24)+16);
-							in.seek(btreeStartOffset+496);
-							in.read(temp);
-							found = true;
-							break;
-						}
-					}
+				// find the last child that starts at or before the index
+				int x = 0;
+				while (x < numberOfItems &&
+					PSTObject.convertLittleEndianBytesToLong(page, x * branchItemSize, x * branchItemSize + keySize) <= index)
+				{
+					x++;
 				}
-				if (!found) {
-					// it must be in the very last branch...
-					if (this.getPSTFileType() == PST_TYPE_ANSI) {
-						btreeStartOffset = extractLEFileOffset(btreeStartOffset+((numberOfItems-1) * 12)+8);
-						in.seek(btreeStartOffset+500);
-						in.read(temp);
-					} else {
-						btreeStartOffset = extractLEFileOffset(btreeStartOffset+((numberOfItems-1) * 24)+16);
-						in.seek(btreeStartOffset+496);
-						in.read(temp);
-					}
+				if (x == 0) {
+					// smaller than everything in the tree
+					break;
 				}
+				// get the address for the child first node in this group
+				int childItemOffset = (x-1) * branchItemSize + keySize * 2;
+				btreeStartOffset = PSTObject.convertLittleEndianBytesToLong(page, childItemOffset, childItemOffset + keySize);
+				page = readBtreePage(btreeStartOffset);
 			}
 			else
 			{
 				// we are at the bottom of the tree...
 				// we want to get our file offset!
+				// The descriptor index is keyed on 32 bits in both formats
+				int compareSize = descTree ? 4 : keySize;
 				for (int x = 0; x < numberOfItems; x++) {
-
-					if (this.getPSTFileType() == PSTFile.PST_TYPE_ANSI) {
-						if (descTree)
-						{
-							// The 32-bit descriptor index b-tree leaf node item
-							in.seek(btreeStartOffset + (x * 16));
-							temp = new byte[4];
-							in.read(temp);
-							if (PSTObject.convertLittleEndianBytesToLong(temp) == index) {
-								// give me the offset index please!
-								in.seek(btreeStartOffset + (x * 16));
-								temp = new byte[16];
-								in.read(temp);
-								return temp;
-							}
-						}
-						else
-						{
-							// The 32-bit (file) offset index item
-							long indexIdOfFirstChildNode = extractLEFileOffset(btreeStartOffset + (x * 12));
-
-							if (indexIdOfFirstChildNode == index) {
-								// we found it!!!! OMG
-								//System.out.println("item found as item #"+x);
-								in.seek(btreeStartOffset + (x * 12));
-
-								temp = new byte[12];
-								in.read(temp);
-								return temp;
-							}
-						}
-					} else {
-						if (descTree)
-						{
-							// The 64-bit descriptor index b-tree leaf node item
-							in.seek(btreeStartOffset + (x * 32));
-
-							temp = new byte[4];
-							in.read(temp);
-							if (PSTObject.convertLittleEndianBytesToLong(temp) == index) {
-								// give me the offset index please!
-								in.seek(btreeStartOffset + (x * 32));
-								temp = new byte[32];
-								in.read(temp);
-								return temp;
-							}
-						}
-						else
-						{
-							// The 64-bit (file) offset index item
-							long indexIdOfFirstChildNode = extractLEFileOffset(btreeStartOffset + (x * 24));
-
-							if (indexIdOfFirstChildNode == index) {
-								// we found it!!!! OMG
-								//System.out.println("item found as item #"+x);
-								in.seek(btreeStartOffset + (x * 24));
-
-								temp = new byte[24];
-								in.read(temp);
-								return temp;
-							}
-						}
+					int itemOffset = x * leafItemSize;
+					if (PSTObject.convertLittleEndianBytesToLong(page, itemOffset, itemOffset + compareSize) == index) {
+						// we found it!!!! OMG
+						byte[] temp = new byte[leafItemSize];
+						System.arraycopy(page, itemOffset, temp, 0, leafItemSize);
+						return temp;
 					}
 				}
 				throw new PSTException("Unable to find "+index);
@@ -706,7 +1050,73 @@ public class PSTFile {
 	DescriptorIndexNode getDescriptorIndexNode(long identifier)
 		throws IOException, PSTException
 	{
-		return new DescriptorIndexNode(findBtreeItem(in, identifier, true), this.getPSTFileType());
+		if (this.descriptorIndexEnabled) {
+			DescriptorIndex index = this.descriptorIndex;
+			if (index == null) {
+				this.loadDescriptorIndex();
+				index = this.descriptorIndex;
+			}
+			return index.getDescriptorIndexNode(identifier);
+		}
+		return new DescriptorIndexNode(findBtreeItem(identifier, true), this.getPSTFileType());
+	}
+
+	/**
+	 * Keep a copy of the descriptor index b-tree in memory.
+	 * Every folder, message, attachment and table is found through this b-tree,
+	 * with the index enabled those lookups are a binary search rather than a walk of the tree on disk.
+	 * The index is loaded the first time it is needed, call loadDescriptorIndex() to load it straight away.
+	 * Memory use is 24 bytes per node in the file, see getDescriptorIndexMemoryUsage().
+	 * @param enabled
+	 */
+	public void setDescriptorIndexEnabled(boolean enabled) {
+		this.descriptorIndexEnabled = enabled;
+	}
+
+	/**
+	 * @return true if node lookups use the in memory descriptor index
+	 */
+	public boolean isDescriptorIndexEnabled() {
+		return this.descriptorIndexEnabled;
+	}
+
+	/**
+	 * Hold the descriptor index in a direct buffer outside of the java heap.
+	 * Only has an effect if set before the index is loaded.
+	 * @param offHeap
+	 */
+	public void setDescriptorIndexOffHeap(boolean offHeap) {
+		this.descriptorIndexOffHeap = offHeap;
+	}
+
+	/**
+	 * Load the in memory descriptor index now (if it isn't already) and enable it.
+	 * @throws IOException
+	 * @throws PSTException
+	 */
+	public synchronized void loadDescriptorIndex()
+		throws IOException, PSTException
+	{
+		if (this.descriptorIndex == null) {
+			this.descriptorIndex = new DescriptorIndex(this, this.descriptorBtreeStartOffset, this.descriptorIndexOffHeap);
+		}
+		this.descriptorIndexEnabled = true;
+	}
+
+	/**
+	 * @return the approximate number of bytes used by the in memory descriptor index, 0 if it isn't loaded
+	 */
+	public long getDescriptorIndexMemoryUsage() {
+		DescriptorIndex index = this.descriptorIndex;
+		return index == null ? 0 : index.getMemoryUsage();
+	}
+
+	/**
+	 * @return the approximate number of bytes used by the in memory offset index, 0 if it isn't loaded
+	 */
+	public long getOffsetIndexMemoryUsage() {
+		OffsetIndex index = this.offsetIndex;
+		return index == null ? 0 : index.getMemoryUsage();
 	}
 
 	/**
@@ -720,7 +1130,48 @@ public class PSTFile {
 	OffsetIndexItem getOffsetIndexNode(long identifier)
 		throws IOException, PSTException
 	{
-		return new OffsetIndexItem(findBtreeItem(in, identifier, false), this.getPSTFileType());
+		if (this.offsetIndexEnabled) {
+			OffsetIndex index = this.offsetIndex;
+			if (index == null) {
+				this.loadOffsetIndex();
+				index = this.offsetIndex;
+			}
+			return index.getOffsetIndexItem(identifier);
+		}
+		return new OffsetIndexItem(findBtreeItem(identifier, false), this.getPSTFileType());
+	}
+
+	/**
+	 * Keep a copy of the offset index b-tree in memory.
+	 * Every read of a table, property or attachment starts with a lookup in this b-tree,
+	 * with the index enabled those lookups are a binary search rather than a walk of the tree on disk.
+	 * The index is loaded the first time it is needed, call loadOffsetIndex() to load it straight away.
+	 * Memory use is about 24 bytes per block in the file.
+	 * @param enabled
+	 */
+	public void setOffsetIndexEnabled(boolean enabled) {
+		this.offsetIndexEnabled = enabled;
+	}
+
+	/**
+	 * @return true if block lookups use the in memory offset index
+	 */
+	public boolean isOffsetIndexEnabled() {
+		return this.offsetIndexEnabled;
+	}
+
+	/**
+	 * Load the in memory offset index now (if it isn't already) and enable it.
+	 * @throws IOException
+	 * @throws PSTException
+	 */
+	public synchronized void loadOffsetIndex()
+		throws IOException, PSTException
+	{
+		if (this.offsetIndex == null) {
+			this.offsetIndex = new OffsetIndex(this, this.offsetBtreeStartOffset);
+		}
+		this.offsetIndexEnabled = true;
 	}
 
 
@@ -736,14 +1187,13 @@ public class PSTFile {
 		throws PSTException, IOException
 	{
 		// make sure the signature is correct
-		in.seek(0);
-		int sig = in.read();
+		int sig = in.readU8(0);
 		if (sig != 0x2) {
 			throw new PSTException("Unable to process descriptor node, bad signature: "+sig);
 		}
 
 		HashMap<Integer, PSTDescriptorItem> output = new HashMap<Integer, PSTDescriptorItem>();
-		int numberOfItems = (int)in.seekAndReadLong(2, 2);
+		int numberOfItems = in.readU16(2);
 		int offset;
 		if (this.getPSTFileType() == PSTFile.PST_TYPE_ANSI) {
 			offset = 4;
@@ -751,12 +1201,8 @@ public class PSTFile {
 			offset = 8;
 		}
 
-		byte[] data = new byte[(int)in.length()];
-		in.seek(0);
-		in.read(data);
-
 		for (int x = 0; x < numberOfItems; x++) {
-			PSTDescriptorItem item = new PSTDescriptorItem(data, offset, this);
+			PSTDescriptorItem item = new PSTDescriptorItem(in, offset, this);
 			output.put(item.descriptorIdentifier, item);
 			if (this.getPSTFileType() == PSTFile.PST_TYPE_ANSI) {
 				offset += 12;
@@ -776,25 +1222,28 @@ public class PSTFile {
 	 * @throws IOException
 	 * @throws PSTException
 	 */
-	LinkedHashMap<Integer, LinkedList<DescriptorIndexNode>> getChildDescriptorTree()
+	synchronized LinkedHashMap<Integer, LinkedList<DescriptorIndexNode>> getChildDescriptorTree()
 			throws IOException, PSTException
 	{
 		if (this.childrenDescriptorTree == null) {
-			long btreeStartOffset = 0;
-			if (this.getPSTFileType() == PST_TYPE_ANSI) {
-				btreeStartOffset = this.extractLEFileOffset(188);
+			this.childrenDescriptorTree = new LinkedHashMap<Integer, LinkedList<DescriptorIndexNode>>();
+			if (this.descriptorIndexEnabled) {
+				// no need to go back to the file
+				if (this.descriptorIndex == null) {
+					this.loadDescriptorIndex();
+				}
+				for (int x = 0; x < this.descriptorIndex.size(); x++) {
+					this.addToChildDescriptorTree(this.descriptorIndex.getNodeAt(x));
+				}
 			} else {
-				btreeStartOffset = this.extractLEFileOffset(224);
+				processDescriptorBTree(this.descriptorBtreeStartOffset);
 			}
-			this.childrenDescriptorTree = new LinkedHashMap<Integer, LinkedList<DescriptorIndexNode>>();
-			processDescriptorBTree(btreeStartOffset);
 		}
 		return this.childrenDescriptorTree;
 	}
 
 	/**
-	 * Recursive function for building the descriptor tree, used by buildDescriptorTree
-	 * @param in
+	 * Walk the descriptor b-tree, adding every node to the children descriptor tree
 	 * @param btreeStartOffset
 	 * @throws IOException
 	 * @throws PSTException
@@ -802,75 +1251,32 @@ public class PSTFile {
 	private void processDescriptorBTree(long btreeStartOffset)
 			throws IOException, PSTException
 	{
-		byte[] temp = new byte[2];
-		if (this.getPSTFileType() == PST_TYPE_ANSI) {
-			in.seek(btreeStartOffset+500);
-		} else {
-			in.seek(btreeStartOffset+496);
-		}
-		in.read(temp);
-
-		if ((temp[0] == 0xffffff81 && temp[1] == 0xffffff81)) {
-
-			if (this.getPSTFileType() == PST_TYPE_ANSI) {
-				in.seek(btreeStartOffset+496);
-			} else {
-				in.seek(btreeStartOffset+488);
+		final int itemSize = this.getPSTFileType() == PST_TYPE_ANSI ? 16 : 32;
+		BtreeWalker.walk(this, btreeStartOffset, true, new BtreeWalker.EntryHandler() {
+			public void handleEntry(byte[] page, int itemOffset) {
+				// The descriptor index b-tree leaf node item
+				byte[] temp = new byte[itemSize];
+				System.arraycopy(page, itemOffset, temp, 0, itemSize);
+				addToChildDescriptorTree(new DescriptorIndexNode(temp, getPSTFileType()));
 			}
+		});
+	}
 
-			int numberOfItems = in.read();
-			in.read(); // maxNumberOfItems
-			in.read(); // itemSize
-			int levelsToLeaf = in.read();
-
-			if (levelsToLeaf > 0) {
-				for (int x = 0; x < numberOfItems; x++) {
-					if (this.getPSTFileType() == PST_TYPE_ANSI) {
-						long branchNodeItemStartIndex = (btreeStartOffset + (12*x));
-						long nextLevelStartsAt =  this.extractLEFileOffset(branchNodeItemStartIndex+8);
-						processDescriptorBTree(nextLevelStartsAt);
-					} else {
-						long branchNodeItemStartIndex = (btreeStartOffset + (24*x));
-						long nextLevelStartsAt =  this.extractLEFileOffset(branchNodeItemStartIndex+16);
-						processDescriptorBTree(nextLevelStartsAt);
-					}
-				}
-			} else {
-				for (int x = 0; x < numberOfItems; x++) {
-					// The 64-bit descriptor index b-tree leaf node item
-					// give me the offset index please!
-					if (this.getPSTFileType() == PSTFile.PST_TYPE_ANSI) {
-						in.seek(btreeStartOffset + (x * 16));
-						temp = new byte[16];
-						in.read(temp);
-					} else {
-						in.seek(btreeStartOffset + (x * 32));
-						temp = new byte[32];
-						in.read(temp);
-					}
-
-					DescriptorIndexNode tempNode = new DescriptorIndexNode(temp, this.getPSTFileType());
-
-					// we don't want to be children of ourselves...
-					if (tempNode.parentDescriptorIndexIdentifier == tempNode.descriptorIdentifier) {
-						// skip!
-					} else if (childrenDescriptorTree.containsKey(tempNode.parentDescriptorIndexIdentifier)) {
-						// add this entry to the existing list of children
-						LinkedList<DescriptorIndexNode> children = childrenDescriptorTree.get(tempNode.parentDescriptorIndexIdentifier);
-						children.add(tempNode);
-					} else {
-						// create a new entry and add this one to that
-						LinkedList<DescriptorIndexNode> children = new LinkedList<DescriptorIndexNode>();
-						children.add(tempNode);
-						childrenDescriptorTree.put(tempNode.parentDescriptorIndexIdentifier, children);
-					}
-					this.itemCount++;
-				}
-			}
+	private void addToChildDescriptorTree(DescriptorIndexNode tempNode) {
+		// we don't want to be children of ourselves...
+		if (tempNode.parentDescriptorIndexIdentifier == tempNode.descriptorIdentifier) {
+			// skip!
+		} else if (childrenDescriptorTree.containsKey(tempNode.parentDescriptorIndexIdentifier)) {
+			// add this entry to the existing list of children
+			LinkedList<DescriptorIndexNode> children = childrenDescriptorTree.get(tempNode.parentDescriptorIndexIdentifier);
+			children.add(tempNode);
 		} else {
-			PSTObject.printHexFormatted(temp, true);
-			throw new PSTException("Unable to read descriptor node, is not a descriptor");
+			// create a new entry and add this one to that
+			LinkedList<DescriptorIndexNode> children = new LinkedList<DescriptorIndexNode>();
+			children.add(tempNode);
+			childrenDescriptorTree.put(tempNode.parentDescriptorIndexIdentifier, children);
 		}
+		this.itemCount++;
 	}
 
 
@@ -0,0 +1,137 @@
+/**
+ * Copyright 2010 Richard Johnson & Orin Eman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ---
+ *
+ * This file is part of java-libpst.
+ *
+ * java-libpst is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * java-libpst is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-libpst.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.pff;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+
+/**
+ * PSTFileContent is the source of raw bytes underneath a PSTFile.
+ * Everything the library reads from the file (headers, b-tree pages and data blocks) goes through
+ * one of these, so the way the file is accessed can be swapped out.
+ * Reads are always done at an absolute position in the file.
+ * @see PSTRandomAccessFileContent
+ * @see PSTMappedFileContent
+ */
+public abstract class PSTFileContent {
+
+	/**
+	 * read up to length bytes from the file into the target array
+	 * @param position absolute position in the file to start reading from
+	 * @param target array to read into
+	 * @param offset where in the array to start writing
+	 * @param length number of bytes wanted
+	 * @return the number of bytes read, which is only less than length at the end of the file, or -1 if position is past the end
+	 * @throws IOException
+	 */
+	public abstract int read(long position, byte[] target, int offset, int length)
+		throws IOException;
+
+	/**
+	 * read into the whole of the target array
+	 * @param position absolute position in the file
+	 * @param target
+	 * @return the number of bytes read or -1
+	 * @throws IOException
+	 */
+	public int read(long position, byte[] target)
+		throws IOException
+	{
+		return this.read(position, target, 0, target.length);
+	}
+
+	/**
+	 * read from the file into the remaining space in the buffer, the buffer's position is moved
+	 * past the bytes read
+	 * @param position absolute position in the file
+	 * @param target
+	 * @return the number of bytes read or -1 if position is past the end
+	 * @throws IOException
+	 */
+	public int read(long position, ByteBuffer target)
+		throws IOException
+	{
+		if (target.hasArray()) {
+			int read = this.read(position, target.array(), target.arrayOffset() + target.position(), target.remaining());
+			if (read > 0) {
+				target.position(target.position() + read);
+			}
+			return read;
+		}
+		byte[] temp = new byte[Math.min(target.remaining(), 8192)];
+		int totalRead = 0;
+		while (target.hasRemaining()) {
+			int read = this.read(position + totalRead, temp, 0, Math.min(temp.length, target.remaining()));
+			if (read <= 0) {
+				break;
+			}
+			target.put(temp, 0, read);
+			totalRead += read;
+		}
+		if (totalRead == 0 && temp.length > 0) {
+			return -1;
+		}
+		return totalRead;
+	}
+
+	/**
+	 * read a single byte
+	 * @param position absolute position in the file
+	 * @return the byte value (0-255) or -1 if position is past the end
+	 * @throws IOException
+	 */
+	public int read(long position)
+		throws IOException
+	{
+		byte[] temp = new byte[1];
+		if (this.read(position, temp, 0, 1) < 1) {
+			return -1;
+		}
+		return temp[0] & 0xff;
+	}
+
+	/**
+	 * @return the size of the underlying file
+	 * @throws IOException
+	 */
+	public abstract long length()
+		throws IOException;
+
+	/**
+	 * release the underlying file
+	 * @throws IOException
+	 */
+	public abstract void close()
+		throws IOException;
+}
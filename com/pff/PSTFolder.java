@@ -113,7 +113,8 @@ public class PSTFolder extends PSTObject {
 					//tmp = new PSTDescriptor(pstFile, folderDescriptor.localDescriptorsOffsetIndexIdentifier).getChildren();
 					tmp = pstFile.getPSTDescriptorItems(folderDescriptor.localDescriptorsOffsetIndexIdentifier);
 				}
-				subfoldersTable = new PSTTable7C(new PSTNodeInputStream(pstFile, pstFile.getOffsetIndexNode(folderDescriptor.dataOffsetIndexIdentifier)), tmp);
+				// we only need the row ids (the descriptor ids of the folders)
+				subfoldersTable = new PSTTable7C(new PSTNodeInputStream(pstFile, pstFile.getOffsetIndexNode(folderDescriptor.dataOffsetIndexIdentifier)), tmp, new int[] { 0x67F2 });
 			} catch (PSTException err) {
 				// hierachy node doesn't exist
 				throw new PSTException("Can't get child folders for folder "+this.getDisplayName()+"("+this.getDescriptorNodeId()+") child count: "+this.getContentCount()+ " - "+err.toString());
@@ -129,6 +130,9 @@ public class PSTFolder extends PSTObject {
 	private LinkedHashSet<DescriptorIndexNode> otherItems = null;
 
 	private PSTTable7C emailsTable = null;
+	private PSTTable7C.RowCursor emailsCursor = null;
+	private PSTTable7C summaryTable = null;
+	private PSTTable7C.RowCursor summaryCursor = null;
 	private LinkedList<DescriptorIndexNode> fallbackEmailsTable = null;
 	private PSTTable7C subfoldersTable = null;
 	
@@ -150,19 +154,8 @@ public class PSTFolder extends PSTObject {
 		}
 
 		try {
-			long folderDescriptorIndex = this.descriptorIndexNode.descriptorIdentifier + 12; // +12 lists emails! :D
-			DescriptorIndexNode folderDescriptor = this.pstFile.getDescriptorIndexNode(folderDescriptorIndex);
-			HashMap<Integer, PSTDescriptorItem> tmp = null;
-			if (folderDescriptor.localDescriptorsOffsetIndexIdentifier > 0) {
-				//tmp = new PSTDescriptor(pstFile, folderDescriptor.localDescriptorsOffsetIndexIdentifier).getChildren();
-				tmp = pstFile.getPSTDescriptorItems(folderDescriptor.localDescriptorsOffsetIndexIdentifier);
-			}
-			//PSTTable7CForFolder folderDescriptorTable = new PSTTable7CForFolder(folderDescriptor.dataBlock.data, folderDescriptor.dataBlock.blockOffsets,tmp, 0x67F2);
-			emailsTable = new PSTTable7C(
-					new PSTNodeInputStream(pstFile, pstFile.getOffsetIndexNode(folderDescriptor.dataOffsetIndexIdentifier)),
-					tmp,
-					0x67F2
-			);
+			emailsTable = this.openContentsTable(new int[] { 0x67F2 });
+			emailsCursor = emailsTable.getRowCursor();
 		} catch (Exception err) {
 
 			// here we have to attempt to fallback onto the children as listed by the descriptor b-tree
@@ -187,6 +180,28 @@ public class PSTFolder extends PSTObject {
 		}
 	}
 	
+	/**
+	 * open the contents table of the folder
+	 * @param propertiesToRead the columns to read
+	 */
+	private PSTTable7C openContentsTable(int[] propertiesToRead)
+		throws PSTException, IOException
+	{
+		long folderDescriptorIndex = this.descriptorIndexNode.descriptorIdentifier + 12; // +12 lists emails! :D
+		DescriptorIndexNode folderDescriptor = this.pstFile.getDescriptorIndexNode(folderDescriptorIndex);
+		HashMap<Integer, PSTDescriptorItem> tmp = null;
+		if (folderDescriptor.localDescriptorsOffsetIndexIdentifier > 0) {
+			//tmp = new PSTDescriptor(pstFile, folderDescriptor.localDescriptorsOffsetIndexIdentifier).getChildren();
+			tmp = pstFile.getPSTDescriptorItems(folderDescriptor.localDescriptorsOffsetIndexIdentifier);
+		}
+		//PSTTable7CForFolder folderDescriptorTable = new PSTTable7CForFolder(folderDescriptor.dataBlock.data, folderDescriptor.dataBlock.blockOffsets,tmp, 0x67F2);
+		return new PSTTable7C(
+				new PSTNodeInputStream(pstFile, pstFile.getOffsetIndexNode(folderDescriptor.dataOffsetIndexIdentifier)),
+				tmp,
+				propertiesToRead
+		);
+	}
+
 	/**
 	 * get some children from the folder
 	 * This is implemented as a cursor of sorts, as there could be thousands
@@ -203,17 +218,15 @@ public class PSTFolder extends PSTObject {
 
 		Vector<PSTObject> output = new Vector<PSTObject>();
 		if (emailsTable != null) {
-			List<HashMap<Integer, PSTTable7CItem>> rows = this.emailsTable.getItems(currentEmailIndex, numberToReturn);
-
-			for (int x = 0; x < rows.size(); x++) {
-				if (this.currentEmailIndex >= this.getContentCount())
+			for (int x = 0; x < numberToReturn; x++) {
+				if (this.currentEmailIndex >= this.getContentCount() ||
+					!this.emailsCursor.moveTo(this.currentEmailIndex))
 				{
 					// no more!
 					break;
 				}
 				// get the emails from the rows
-				PSTTable7CItem emailRow = rows.get(x).get(0x67F2);
-				DescriptorIndexNode childDescriptor = pstFile.getDescriptorIndexNode(emailRow.entryValueReference);
+				DescriptorIndexNode childDescriptor = pstFile.getDescriptorIndexNode(this.emailsCursor.getRowId());
 				PSTObject child = PSTObject.detectAndLoadPSTObject(pstFile, childDescriptor);
 				output.add(child);
 				currentEmailIndex++;
@@ -244,19 +257,18 @@ public class PSTFolder extends PSTObject {
 			return new LinkedList<Integer>();
 		}
 		LinkedList<Integer> output = new LinkedList<Integer>();
-		List<HashMap<Integer, PSTTable7CItem>> rows = this.emailsTable.getItems();
-		for (HashMap<Integer, PSTTable7CItem> row : rows) {
+		PSTTable7C.RowCursor rows = this.emailsTable.getRowCursor();
+		while (rows.next()) {
 			// get the emails from the rows
 			if (this.currentEmailIndex == this.getContentCount())
 			{
 				// no more!
 				break;
 			}
-			PSTTable7CItem emailRow = row.get(0x67F2);
-			if (emailRow.entryValueReference == 0) {
+			if (rows.getRowId() == 0) {
 				break;
 			}
-			output.add(emailRow.entryValueReference);
+			output.add(rows.getRowId());
 		}
 		return output;
 	}
@@ -276,16 +288,14 @@ public class PSTFolder extends PSTObject {
 		initEmailsTable();
 
 		if (this.emailsTable != null) {
-			List<HashMap<Integer, PSTTable7CItem>> rows = this.emailsTable.getItems(currentEmailIndex, 1);
-
-			if (this.currentEmailIndex == this.getContentCount())
+			if (this.currentEmailIndex >= this.getContentCount() ||
+				!this.emailsCursor.moveTo(this.currentEmailIndex))
 			{
 				// no more!
 				return null;
 			}
 			// get the emails from the rows
-			PSTTable7CItem emailRow = rows.get(0).get(0x67F2);
-			DescriptorIndexNode childDescriptor = pstFile.getDescriptorIndexNode(emailRow.entryValueReference);
+			DescriptorIndexNode childDescriptor = pstFile.getDescriptorIndexNode(this.emailsCursor.getRowId());
 			PSTObject child = PSTObject.detectAndLoadPSTObject(pstFile, childDescriptor);
 			currentEmailIndex++;
 
@@ -305,6 +315,145 @@ public class PSTFolder extends PSTObject {
 		return null;
 	}
 	
+	/**
+	 * Get a summary of the next child of this folder.
+	 * Summaries are read straight from the contents table of the folder,
+	 * the message itself is only loaded if PSTMessageSummary.getMessage() is called.
+	 * This moves the same cursor as getNextChild.
+	 * @return the summary of the next email in the folder or null if at the end of the folder
+	 * @throws PSTException
+	 * @throws IOException
+	 */
+	public PSTMessageSummary getNextChildSummary()
+		throws PSTException, IOException
+	{
+		initEmailsTable();
+
+		if (this.emailsTable != null) {
+			if (this.summaryCursor == null) {
+				this.summaryCursor = this.getSummaryTable().getRowCursor();
+			}
+			if (this.currentEmailIndex >= this.getContentCount() ||
+				!this.summaryCursor.moveTo(this.currentEmailIndex))
+			{
+				// no more!
+				return null;
+			}
+			PSTMessageSummary summary = new PSTMessageSummary(pstFile, this.summaryCursor);
+			currentEmailIndex++;
+			return summary;
+		} else if (this.fallbackEmailsTable != null) {
+			// no contents table, the messages have to be loaded
+			PSTObject child = this.getNextChild();
+			while (child != null && !(child instanceof PSTMessage)) {
+				child = this.getNextChild();
+			}
+			if (child != null) {
+				return new PSTMessageSummary((PSTMessage)child);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * get summaries of some children from the folder, without loading the messages
+	 * @param numberToReturn
+	 * @return summaries of the next children in this folder
+	 * @throws PSTException
+	 * @throws IOException
+	 */
+	public Vector<PSTMessageSummary> getChildSummaries(int numberToReturn)
+		throws PSTException, IOException
+	{
+		Vector<PSTMessageSummary> output = new Vector<PSTMessageSummary>();
+		for (int x = 0; x < numberToReturn; x++) {
+			PSTMessageSummary summary = this.getNextChildSummary();
+			if (summary == null) {
+				break;
+			}
+			output.add(summary);
+		}
+		return output;
+	}
+
+	/**
+	 * Get the summary of a child of this folder from its descriptor id.
+	 * The row is found through the index of the contents table, the rest of the table isn't read.
+	 * This doesn't move the folder cursor.
+	 * @param descriptorId the descriptor id of the message
+	 * @return the summary, or null if the message isn't in this folder
+	 * @throws PSTException
+	 * @throws IOException
+	 */
+	public PSTMessageSummary getChildSummary(int descriptorId)
+		throws PSTException, IOException
+	{
+		initEmailsTable();
+
+		if (this.emailsTable != null) {
+			PSTTable7C.RowCursor cursor = this.getSummaryTable().getRowByRowId(descriptorId);
+			if (cursor == null) {
+				return null;
+			}
+			return new PSTMessageSummary(pstFile, cursor);
+		} else if (this.fallbackEmailsTable != null) {
+			// no contents table, the message has to be loaded
+			for (DescriptorIndexNode childDescriptor : this.fallbackEmailsTable) {
+				if (childDescriptor.descriptorIdentifier == descriptorId) {
+					PSTObject child = PSTObject.detectAndLoadPSTObject(pstFile, childDescriptor);
+					if (child instanceof PSTMessage) {
+						return new PSTMessageSummary((PSTMessage)child);
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Get the summaries of a set of children of this folder from their descriptor ids.
+	 * The index of the contents table is read through once for all of them.
+	 * This doesn't move the folder cursor.
+	 * @param sortedDescriptorIds the descriptor ids of the messages, in ascending order
+	 * @return the summary for each of the ids, null where the message isn't in this folder
+	 * @throws PSTException
+	 * @throws IOException
+	 */
+	public PSTMessageSummary[] getChildSummaries(int[] sortedDescriptorIds)
+		throws PSTException, IOException
+	{
+		initEmailsTable();
+
+		PSTMessageSummary[] output = new PSTMessageSummary[sortedDescriptorIds.length];
+		if (this.emailsTable != null) {
+			PSTTable7C table = this.getSummaryTable();
+			int[] rows = table.getRowIndexes(sortedDescriptorIds);
+			PSTTable7C.RowCursor cursor = table.getRowCursor();
+			for (int x = 0; x < rows.length; x++) {
+				if (rows[x] != -1 && cursor.moveTo(rows[x])) {
+					output[x] = new PSTMessageSummary(pstFile, cursor);
+				}
+			}
+		} else {
+			for (int x = 0; x < sortedDescriptorIds.length; x++) {
+				output[x] = this.getChildSummary(sortedDescriptorIds[x]);
+			}
+		}
+		return output;
+	}
+
+	/**
+	 * the contents table, read with just the columns that summaries are made from
+	 */
+	private PSTTable7C getSummaryTable()
+		throws PSTException, IOException
+	{
+		if (this.summaryTable == null) {
+			this.summaryTable = this.openContentsTable(PSTMessageSummary.COLUMNS);
+		}
+		return this.summaryTable;
+	}
+
 	/**
 	 * move the internal folder cursor to the desired position
 	 * position 0 is before the first record.
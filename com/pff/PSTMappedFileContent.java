@@ -0,0 +1,161 @@
+/**
+ * Copyright 2010 Richard Johnson & Orin Eman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ---
+ *
+ * This file is part of java-libpst.
+ *
+ * java-libpst is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * java-libpst is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-libpst.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.pff;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * PSTFileContent that memory maps the file.
+ * Reads become plain copies out of the page cache rather than a seek and read system call each,
+ * which makes a big difference when walking the b-trees.
+ * A single mapping is limited to 2GB, so the file is mapped in a number of fixed size segments.
+ */
+public class PSTMappedFileContent extends PSTFileContent {
+
+	/**
+	 * segments are 1GB by default
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+
+	private RandomAccessFile file;
+	private MappedByteBuffer[] segments;
+	private long length;
+	private int segmentShift;
+	private long segmentMask;
+
+	public PSTMappedFileContent(File fileName)
+		throws IOException
+	{
+		this(fileName, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * @param fileName
+	 * @param segmentSize size of each mapped segment, must be a power of 2
+	 * @throws IOException
+	 */
+	public PSTMappedFileContent(File fileName, int segmentSize)
+		throws IOException
+	{
+		if (segmentSize <= 0 || (segmentSize & (segmentSize - 1)) != 0) {
+			throw new IllegalArgumentException("Segment size must be a power of 2: "+segmentSize);
+		}
+		this.segmentShift = Integer.numberOfTrailingZeros(segmentSize);
+		this.segmentMask = segmentSize - 1;
+
+		this.file = new RandomAccessFile(fileName, "r");
+		try {
+			FileChannel channel = this.file.getChannel();
+			this.length = channel.size();
+			int numberOfSegments = (int)((this.length + segmentSize - 1) >>> this.segmentShift);
+			this.segments = new MappedByteBuffer[numberOfSegments];
+			for (int x = 0; x < numberOfSegments; x++) {
+				long start = (long)x << this.segmentShift;
+				long size = Math.min(segmentSize, this.length - start);
+				this.segments[x] = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+			}
+		} catch (IOException err) {
+			this.file.close();
+			throw err;
+		}
+	}
+
+	@Override
+	public int read(long position, byte[] target, int offset, int length)
+		throws IOException
+	{
+		if (position >= this.length) {
+			return -1;
+		}
+		int totalRead = 0;
+		while (totalRead < length && position < this.length) {
+			// duplicate so concurrent readers don't share a buffer position
+			ByteBuffer segment = this.segments[(int)(position >>> this.segmentShift)].duplicate();
+			segment.position((int)(position & this.segmentMask));
+			int read = Math.min(length - totalRead, segment.remaining());
+			segment.get(target, offset + totalRead, read);
+			totalRead += read;
+			position += read;
+		}
+		return totalRead;
+	}
+
+	@Override
+	public int read(long position, ByteBuffer target)
+		throws IOException
+	{
+		if (position >= this.length) {
+			return -1;
+		}
+		int totalRead = 0;
+		while (target.hasRemaining() && position < this.length) {
+			ByteBuffer segment = this.segments[(int)(position >>> this.segmentShift)].duplicate();
+			segment.position((int)(position & this.segmentMask));
+			int read = Math.min(target.remaining(), segment.remaining());
+			segment.limit(segment.position() + read);
+			target.put(segment);
+			totalRead += read;
+			position += read;
+		}
+		return totalRead;
+	}
+
+	@Override
+	public int read(long position)
+		throws IOException
+	{
+		if (position < 0 || position >= this.length) {
+			return -1;
+		}
+		return this.segments[(int)(position >>> this.segmentShift)].get((int)(position & this.segmentMask)) & 0xff;
+	}
+
+	@Override
+	public long length() {
+		return this.length;
+	}
+
+	/**
+	 * closes the file, the mappings themselves are released when they are garbage collected
+	 */
+	@Override
+	public void close()
+		throws IOException
+	{
+		this.file.close();
+	}
+}
@@ -66,15 +66,19 @@ public class PSTMessage extends PSTObject {
 		throws PSTException, IOException
 	{
 		// do we have an entry for it?
-		if (this.items.containsKey(0x1009))
+		PSTTableBCItem item = this.getItem(0x1009);
+		if (item != null)
 		{
 			// is it a reference?
-			PSTTableBCItem item = this.items.get(0x1009);
-			if (item.data.length > 0) {
-				return (LZFu.decode(item.data));
+			byte[] data = item.getData();
+			if (data == null) {
+				throw new PSTException("Unable to read the RTF body");
+			}
+			if (data.length > 0) {
+				return (LZFu.decode(data));
 			}
 			int ref = item.entryValueReference;
-			PSTDescriptorItem descItem = this.localDescriptorItems.get(ref);
+			PSTDescriptorItem descItem = this.getLocalDescriptorItem(ref);
 			if ( descItem != null ) {
 				return LZFu.decode(descItem.getData());
 			}
@@ -106,8 +110,13 @@ public class PSTMessage extends PSTObject {
 	 * @return empty string if not found
 	 */
 	public String getSubject() {
-		String subject = this.getStringItem(0x0037);
+		return PSTMessage.stripSubjectPrefix(this.getStringItem(0x0037));
+	}
 
+	/**
+	 * remove the control codes some subjects start with
+	 */
+	static String stripSubjectPrefix(String subject) {
 //		byte[] controlCodesA = {0x01, 0x01};
 //		byte[] controlCodesB = {0x01, 0x05};
 //		byte[] controlCodesC = {0x01, 0x10};
@@ -593,15 +602,7 @@ public class PSTMessage extends PSTObject {
 	 * Plain text e-mail body
 	 */
 	public String getBody() {
-		String cp = null;
-		PSTTableBCItem cpItem = (PSTTableBCItem)this.items.get(0x3FFD); // PidTagMessageCodepage
-		if (cpItem == null) {
-			cpItem = (PSTTableBCItem)this.items.get(0x3FDE); // PidTagInternetCodepage
-		}
-		if (cpItem != null) {
-			cp = PSTFile.getInternetCodePageCharset(cpItem.entryValueReference);
-		}
-		return this.getStringItem(0x1000, 0, cp);
+		return this.getStringItem(0x1000, 0, this.getStringCodePage());
 	}
 	/*
 	 * Plain text body prefix
@@ -643,13 +644,13 @@ public class PSTMessage extends PSTObject {
 	 * HTML e-mail body
 	 */
 	public String getBodyHTML() {
-		String cp = null;
-		PSTTableBCItem cpItem = (PSTTableBCItem)this.items.get(0x3FDE); // PidTagInternetCodepage
-		if (cpItem == null) {
-			cpItem = (PSTTableBCItem)this.items.get(0x3FFD); // PidTagMessageCodepage
+		PSTFile.CodePage cp = PSTFile.DEFAULT_CODE_PAGE;
+		int cpIndex = this.table.indexOf(0x3FDE); // PidTagInternetCodepage
+		if (cpIndex == -1) {
+			cpIndex = this.table.indexOf(0x3FFD); // PidTagMessageCodepage
 		}
-		if (cpItem != null) {
-			cp = PSTFile.getInternetCodePageCharset(cpItem.entryValueReference);
+		if (cpIndex != -1) {
+			cp = PSTFile.getCodePage(this.table.getValueReference(cpIndex));
 		}
 		return this.getStringItem(0x1013, 0, cp);
 	}
@@ -754,10 +755,10 @@ public class PSTMessage extends PSTObject {
 		try {
 			int recipientTableKey = 0x0692;
 			if (this.recipientTable == null &&
-				this.localDescriptorItems != null &&
-				this.localDescriptorItems.containsKey(recipientTableKey))
+				this.getLocalDescriptorItems() != null &&
+				this.getLocalDescriptorItems().containsKey(recipientTableKey))
 			{
-				PSTDescriptorItem item = this.localDescriptorItems.get(recipientTableKey);
+				PSTDescriptorItem item = this.getLocalDescriptorItems().get(recipientTableKey);
 				HashMap<Integer, PSTDescriptorItem> descriptorItems = null;
 				if (item.subNodeOffsetIndexIdentifier > 0) {
 					descriptorItems =pstFile.getPSTDescriptorItems(item.subNodeOffsetIndexIdentifier);
@@ -806,10 +807,10 @@ public class PSTMessage extends PSTObject {
 	{
 		int attachmentTableKey = 0x0671;
 		if (this.attachmentTable == null &&
-			this.localDescriptorItems != null &&
-			this.localDescriptorItems.containsKey(attachmentTableKey))
+			this.getLocalDescriptorItems() != null &&
+			this.getLocalDescriptorItems().containsKey(attachmentTableKey))
 		{
-			PSTDescriptorItem item = this.localDescriptorItems.get(attachmentTableKey);
+			PSTDescriptorItem item = this.getLocalDescriptorItems().get(attachmentTableKey);
 			HashMap<Integer, PSTDescriptorItem> descriptorItems = null;
 			if (item.subNodeOffsetIndexIdentifier > 0) {
 				descriptorItems =pstFile.getPSTDescriptorItems(item.subNodeOffsetIndexIdentifier);
@@ -858,31 +859,32 @@ public class PSTMessage extends PSTObject {
 			throws PSTException
 	{
 		String[] categories = new String[0];
-		if (this.items.containsKey(0x8016)) {
+		PSTTableBCItem item = this.getItem(0x8016);
+		if (item != null) {
 			try {
-				PSTTableBCItem item = this.items.get(0x8016);
-				//PSTObject.printHexFormatted(item.data, true);
-				int categoryCount = (int)item.data[0];
+				byte[] data = item.getData();
+				//PSTObject.printHexFormatted(data, true);
+				int categoryCount = (int)data[0];
 				if (categoryCount > 0) {
 					categories = new String[categoryCount];
 					int[] offsets = new int[categoryCount];
 					for (int x = 0; x < categoryCount; x++) {
-						offsets[x] = (int)PSTObject.convertBigEndianBytesToLong(item.data, (x*4)+1, (x+1)*4+1);
+						offsets[x] = (int)PSTObject.convertBigEndianBytesToLong(data, (x*4)+1, (x+1)*4+1);
 					}
 					for (int x = 0; x < offsets.length -1; x++) {
 						int start = offsets[x];
 						int end = offsets[x+1];
 						int length = (end-start);
 						byte[] string = new byte[length];
-						System.arraycopy(item.data, start, string, 0, length);
+						System.arraycopy(data, start, string, 0, length);
 						String name = new String(string, "UTF-16LE");
 						categories[x] = name;
 					}
 					int start = offsets[offsets.length-1];
-					int end = item.data.length;
+					int end = data.length;
 					int length = (end-start);
 					byte[] string = new byte[length];
-					System.arraycopy(item.data, start, string, 0, length);
+					System.arraycopy(data, start, string, 0, length);
 					String name = new String(string, "UTF-16LE");
 					categories[categories.length-1] = name;
 				}
@@ -942,7 +944,7 @@ public class PSTMessage extends PSTObject {
 		int descriptorItemId = attachmentTableItem.entryValueReference;
 
 		// get the local descriptor for the attachmentDetails table.
-		PSTDescriptorItem descriptorItem = this.localDescriptorItems.get(descriptorItemId);
+		PSTDescriptorItem descriptorItem = this.getLocalDescriptorItems().get(descriptorItemId);
 
 		// try and decode it
 		byte[] attachmentData = descriptorItem.getData();
@@ -1006,8 +1008,8 @@ public class PSTMessage extends PSTObject {
 			"Importance: "+this.getImportance()+"\n"+
 			"Message Class: "+this.getMessageClass() + "\n\n" +
 			this.getTransportMessageHeaders()+"\n\n\n"+
-			this.items+
-			this.localDescriptorItems;
+			this.table.getItems()+
+			this.getLocalDescriptorItemsString();
 	}
 	
 }
@@ -56,10 +56,10 @@ public class PSTMessageStore extends PSTObject {
 	public UUID getTagRecordKeyAsUUID() {
 		// attempt to find in the table.
 		int guidEntryType = 0x0ff9;
-		if (this.items.containsKey(guidEntryType)) {
-			PSTTableBCItem item = (PSTTableBCItem)this.items.get(guidEntryType);
+		PSTTableBCItem item = this.getItem(guidEntryType);
+		byte[] bytes = item == null ? null : item.getData();
+		if (bytes != null) {
 			int offset = 0;
-			byte[] bytes = item.data;
 			long mostSigBits = (PSTObject.convertLittleEndianBytesToLong(bytes, offset, offset+4) << 32) |
 								(PSTObject.convertLittleEndianBytesToLong(bytes, offset+4, offset+6) << 16) |
 								PSTObject.convertLittleEndianBytesToLong(bytes, offset+6, offset+8);
@@ -75,7 +75,7 @@ public class PSTMessageStore extends PSTObject {
 	public String getDisplayName() {
 		// attempt to find in the table.
 		int displayNameEntryType = 0x3001;
-		if (this.items.containsKey(displayNameEntryType)) {
+		if (this.table.indexOf(displayNameEntryType) != -1) {
 			return this.getStringItem(displayNameEntryType);
 			//PSTTableBCItem item = (PSTTableBCItem)this.items.get(displayNameEntryType);
 			//return new String(item.getStringValue());
@@ -85,7 +85,7 @@ public class PSTMessageStore extends PSTObject {
 
 
 	public String getDetails() {
-		return this.items.toString();
+		return this.table.getItems().toString();
 	}
 
 }
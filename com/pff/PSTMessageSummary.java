@@ -0,0 +1,260 @@
+/**
+ * Copyright 2010 Richard Johnson & Orin Eman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ---
+ *
+ * This file is part of java-libpst.
+ *
+ * java-libpst is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * java-libpst is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-libpst.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.pff;
+
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * A summary of a message, taken from the contents table of its folder.
+ * The contents table already holds the subject, sender, dates, size and flags of every message,
+ * so summaries can be listed without opening the messages themselves.
+ * The full message is only loaded when getMessage() is called.
+ */
+public class PSTMessageSummary {
+
+	/**
+	 * the contents table columns a summary is built from
+	 */
+	static final int[] COLUMNS = {
+		0x0017,	// PidTagImportance
+		0x001A,	// PidTagMessageClass
+		0x0037,	// PidTagSubject
+		0x0039,	// PidTagClientSubmitTime
+		0x0040,	// PidTagReceivedByName
+		0x0042,	// PidTagSentRepresentingName
+		0x0065,	// PidTagSentRepresentingEmailAddress
+		0x0076,	// PidTagReceivedByEmailAddress
+		0x0E03,	// PidTagDisplayCc
+		0x0E04,	// PidTagDisplayTo
+		0x0E06,	// PidTagMessageDeliveryTime
+		0x0E07,	// PidTagMessageFlags
+		0x0E08,	// PidTagMessageSize
+		0x3FFD,	// PidTagMessageCodepage
+		0x67F2	// PidTagLtpRowId
+	};
+
+	private PSTFile pstFile;
+	private PSTMessage message = null;
+
+	private long descriptorNodeId;
+	private String messageClass;
+	private String subject;
+	private String sentRepresentingName;
+	private String sentRepresentingEmailAddress;
+	private String receivedByName;
+	private String receivedByAddress;
+	private String displayCC;
+	private String displayTo;
+	private Date clientSubmitTime;
+	private Date messageDeliveryTime;
+	private long messageSize;
+	private int messageFlags;
+	private int importance;
+
+	/**
+	 * build a summary from the row a contents table cursor is on
+	 */
+	PSTMessageSummary(PSTFile theFile, PSTTable7C.RowValues row)
+			throws PSTException, IOException
+	{
+		this.pstFile = theFile;
+		this.descriptorNodeId = row.getRowId();
+
+		PSTFile.CodePage codepage = PSTFile.DEFAULT_CODE_PAGE;
+		if (row.isPresent(0x3FFD)) {
+			codepage = PSTFile.getCodePage(row.getIntValue(0x3FFD, 0));
+		}
+		this.messageClass = getString(row, 0x001A, codepage);
+		this.subject = PSTMessage.stripSubjectPrefix(getString(row, 0x0037, codepage));
+		this.sentRepresentingName = getString(row, 0x0042, codepage);
+		this.sentRepresentingEmailAddress = getString(row, 0x0065, codepage);
+		this.receivedByName = getString(row, 0x0040, codepage);
+		this.receivedByAddress = getString(row, 0x0076, codepage);
+		this.displayCC = getString(row, 0x0E03, codepage);
+		this.displayTo = getString(row, 0x0E04, codepage);
+		this.clientSubmitTime = getDate(row, 0x0039);
+		this.messageDeliveryTime = getDate(row, 0x0E06);
+		this.messageSize = row.getLongValue(0x0E08, 0);
+		this.messageFlags = row.getIntValue(0x0E07, 0);
+		this.importance = row.getIntValue(0x0017, PSTMessage.IMPORTANCE_NORMAL);
+	}
+
+	/**
+	 * build a summary from a message that has already been loaded,
+	 * for folders where the contents table can't be read
+	 */
+	PSTMessageSummary(PSTMessage message) {
+		this.pstFile = message.pstFile;
+		this.message = message;
+		this.descriptorNodeId = message.getDescriptorNodeId();
+		this.messageClass = message.getMessageClass();
+		this.subject = message.getSubject();
+		this.sentRepresentingName = message.getSentRepresentingName();
+		this.sentRepresentingEmailAddress = message.getSentRepresentingEmailAddress();
+		this.receivedByName = message.getReceivedByName();
+		this.receivedByAddress = message.getReceivedByAddress();
+		this.displayCC = message.getDisplayCC();
+		this.displayTo = message.getDisplayTo();
+		this.clientSubmitTime = message.getClientSubmitTime();
+		this.messageDeliveryTime = message.getMessageDeliveryTime();
+		this.messageSize = message.getMessageSize();
+		this.messageFlags = message.getIntItem(0x0e07);
+		this.importance = message.getImportance();
+	}
+
+	private static String getString(PSTTable7C.RowValues row, int propertyId, PSTFile.CodePage codepage)
+			throws PSTException, IOException
+	{
+		String value = row.getStringValue(propertyId, codepage);
+		if (value == null) {
+			return "";
+		}
+		return value;
+	}
+
+	private static Date getDate(PSTTable7C.RowValues row, int propertyId) {
+		if (!row.isPresent(propertyId)) {
+			return null;
+		}
+		long filetime = row.getLongValue(propertyId, 0);
+		return PSTObject.filetimeToDate((int)(filetime >>> 32), (int)filetime);
+	}
+
+	/**
+	 * load the full message, this is only done the first time it is asked for
+	 * @return the message the summary is for
+	 * @throws PSTException
+	 * @throws IOException
+	 */
+	public PSTMessage getMessage()
+		throws PSTException, IOException
+	{
+		if (this.message == null) {
+			PSTObject object = PSTObject.detectAndLoadPSTObject(this.pstFile, this.descriptorNodeId);
+			if (!(object instanceof PSTMessage)) {
+				throw new PSTException("Descriptor "+this.descriptorNodeId+" is not a message");
+			}
+			this.message = (PSTMessage)object;
+		}
+		return this.message;
+	}
+
+	/**
+	 * @return the descriptor node id of the message, for use with PSTObject.detectAndLoadPSTObject
+	 */
+	public long getDescriptorNodeId() {
+		return this.descriptorNodeId;
+	}
+
+	/**
+	 * @return empty string if unknown
+	 */
+	public String getMessageClass() {
+		return this.messageClass;
+	}
+
+	/**
+	 * @return empty string if not found
+	 */
+	public String getSubject() {
+		return this.subject;
+	}
+
+	public String getSentRepresentingName() {
+		return this.sentRepresentingName;
+	}
+
+	public String getSentRepresentingEmailAddress() {
+		return this.sentRepresentingEmailAddress;
+	}
+
+	public String getReceivedByName() {
+		return this.receivedByName;
+	}
+
+	public String getReceivedByAddress() {
+		return this.receivedByAddress;
+	}
+
+	public String getDisplayCC() {
+		return this.displayCC;
+	}
+
+	public String getDisplayTo() {
+		return this.displayTo;
+	}
+
+	/**
+	 * @return null if not found
+	 */
+	public Date getClientSubmitTime() {
+		return this.clientSubmitTime;
+	}
+
+	/**
+	 * @return null if not found
+	 */
+	public Date getMessageDeliveryTime() {
+		return this.messageDeliveryTime;
+	}
+
+	public long getMessageSize() {
+		return this.messageSize;
+	}
+
+	/**
+	 * @return IMPORTANCE_NORMAL if unknown
+	 */
+	public int getImportance() {
+		return this.importance;
+	}
+
+	public boolean isRead() {
+		return ((this.messageFlags & 0x01) != 0);
+	}
+	public boolean isUnsent() {
+		return ((this.messageFlags & 0x08) != 0);
+	}
+	public boolean hasAttachments() {
+		return ((this.messageFlags & 0x10) != 0);
+	}
+	public boolean isFromMe() {
+		return ((this.messageFlags & 0x20) != 0);
+	}
+
+	public String toString() {
+		return this.descriptorNodeId+": "+this.subject;
+	}
+}
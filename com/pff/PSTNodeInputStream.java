@@ -35,31 +35,82 @@
 package com.pff;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * this input stream basically "maps" an input stream on top of the random access file
+ * It can also be read as a ReadableByteChannel.
  * @author richard
  */
-public class PSTNodeInputStream extends InputStream {
+public class PSTNodeInputStream extends InputStream implements ReadableByteChannel {
 
-	private RandomAccessFile in;
+	private PSTFileContent in;
 	private PSTFile pstFile;
-	private LinkedList<Long> skipPoints = new LinkedList<Long>();
-	private LinkedList<OffsetIndexItem> indexItems = new LinkedList<OffsetIndexItem>();
+
+	// the blocks making up the item, where each one starts in the item,
+	// where it is in the file, its size and its id (needed for decoding)
+	private int blockCount = 0;
+	private long[] blockStart = new long[0];
+	private long[] blockFileOffset = new long[0];
+	private int[] blockSize = new int[0];
+	private long[] blockId = new long[0];
+
+	// the block we were last in, a hint for finding the next one
 	private int currentBlock = 0;
 	private long currentLocation = 0;
 
+	// the data of single block items, already decoded
 	private byte[] allData = null;
 
 	private long length = 0;
 
-	private boolean encrypted = false;
+	// decoder for blocks read from the file, null if they aren't encrypted
+	private PSTCrypt crypt = null;
+
+	private boolean open = true;
+
+	/**
+	 * the most we read from the file in one go when blocks sit next to each other
+	 */
+	static final int MAX_RUN_SIZE = 256 * 1024;
+
+	/**
+	 * blocks are still treated as next to each other if there is a gap of up to this much between them,
+	 * it's quicker to read over a block trailer and some padding than to do another read
+	 */
+	static final int MAX_RUN_GAP = 1024;
+
+	// raw (not yet decoded) contents of the file covering a run of blocks that sit next to each other
+	private byte[] runBuffer = null;
+	private long runFileOffset = 0;
+	private int runFirstBlock = -1;
+	private int runLastBlock = -1;
+
+	// where the last positional read finished, a read starting there is treated as sequential
+	private long sequentialPosition = -1;
+
+	// decoded contents of the block last used by the single byte and primitive reads
+	private byte[] window = null;
+	private long windowStart = 0;
+	private int windowLength = 0;
+
+	// the next run, being read in the background
+	private byte[] readAheadBuffer = null;
+	private Future<Integer> readAhead = null;
+	private long readAheadFileOffset = 0;
+	private int readAheadFirstBlock = -1;
+	private int readAheadLastBlock = -1;
 
+	/**
+	 * a stream over data that has already been read (and decoded) from the file
+	 */
 	PSTNodeInputStream(PSTFile pstFile, byte[] attachmentData) {
 		this.allData = attachmentData;
 		this.length = this.allData.length;
-		this.encrypted = pstFile.getEncryptionType() == PSTFile.ENCRYPTION_TYPE_COMPRESSIBLE;
 		this.currentBlock = 0;
 		this.currentLocation = 0;
 	}
@@ -67,9 +118,9 @@ public class PSTNodeInputStream extends InputStream {
 	PSTNodeInputStream(PSTFile pstFile, PSTDescriptorItem descriptorItem)
 			throws IOException, PSTException
 	{
-		this.in = pstFile.getFileHandle();
+		this.in = pstFile.getContentHandle();
 		this.pstFile = pstFile;
-		this.encrypted = pstFile.getEncryptionType() == PSTFile.ENCRYPTION_TYPE_COMPRESSIBLE;
+		this.crypt = pstFile.getCrypt();
 
 		// we want to get the first block of data and see what we are dealing with
 		OffsetIndexItem offsetItem = pstFile.getOffsetIndexNode(descriptorItem.offsetIndexIdentifier);
@@ -82,9 +133,9 @@ public class PSTNodeInputStream extends InputStream {
 	PSTNodeInputStream(PSTFile pstFile, OffsetIndexItem offsetItem)
 			throws IOException, PSTException
 	{
-		this.in = pstFile.getFileHandle();
+		this.in = pstFile.getContentHandle();
 		this.pstFile = pstFile;
-		this.encrypted = pstFile.getEncryptionType() == PSTFile.ENCRYPTION_TYPE_COMPRESSIBLE;
+		this.crypt = pstFile.getCrypt();
 		loadFromOffsetItem(offsetItem);
 		this.currentBlock = 0;
 		this.currentLocation = 0;
@@ -95,9 +146,8 @@ public class PSTNodeInputStream extends InputStream {
 	{
 		boolean bInternal = (offsetItem.indexIdentifier & 0x02) != 0;
 
-		in.seek(offsetItem.fileOffset);
-		byte[] data = new byte[offsetItem.size];
-		in.read(data);
+		// decoded already, unless it is internal
+		byte[] data = pstFile.readBlock(offsetItem);
 
 		if ( bInternal ) {
 			// All internal blocks are at least 8 bytes long...
@@ -116,17 +166,13 @@ public class PSTNodeInputStream extends InputStream {
 			}
 		}
 
-		// (Internal blocks aren't compressed)
-		if (bInternal) {
-			this.encrypted = false;
-		}
 		this.allData = data;
 		this.length = this.allData.length;
 
 	}
 
 	public boolean isEncrypted() {
-		return this.encrypted;
+		return this.crypt != null;
 	}
 
 	private void getBlockSkipPoints(byte[] data)
@@ -137,6 +183,9 @@ public class PSTNodeInputStream extends InputStream {
 		}
 
 		int numberOfEntries = (int)PSTObject.convertLittleEndianBytesToLong(data, 2, 4);
+		if (data[1] == 0x1) {
+			this.ensureBlockCapacity(this.blockCount + numberOfEntries);
+		}
 
 		int arraySize = 8;
 		if (this.pstFile.getPSTFileType() == PSTFile.PST_TYPE_ANSI) {
@@ -150,9 +199,7 @@ public class PSTNodeInputStream extends InputStream {
 				bid &= 0xfffffffe;
 				// get the details in this block and
 				OffsetIndexItem offsetItem = this.pstFile.getOffsetIndexNode(bid);
-				in.seek(offsetItem.fileOffset);
-				byte[] blockData = new byte[offsetItem.size];
-				in.read(blockData);
+				byte[] blockData = this.pstFile.readBlock(offsetItem);
 				this.getBlockSkipPoints(blockData);
 				offset += arraySize;
 			}
@@ -164,14 +211,65 @@ public class PSTNodeInputStream extends InputStream {
 				bid &= 0xfffffffe;
 				// get the details in this block and add it to the list
 				OffsetIndexItem offsetItem = pstFile.getOffsetIndexNode(bid);
-				this.indexItems.add(offsetItem);
-				this.skipPoints.add(this.currentLocation);
+				this.blockStart[this.blockCount] = this.currentLocation;
+				this.blockFileOffset[this.blockCount] = offsetItem.fileOffset;
+				this.blockSize[this.blockCount] = offsetItem.size;
+				this.blockId[this.blockCount] = offsetItem.indexIdentifier;
+				this.blockCount++;
 				this.currentLocation += offsetItem.size;
 				offset += arraySize;
 			}
 		}
 	}
 
+	private void ensureBlockCapacity(int capacity) {
+		if (capacity <= this.blockStart.length) {
+			return;
+		}
+		capacity = Math.max(capacity, this.blockStart.length * 2);
+		this.blockStart = Arrays.copyOf(this.blockStart, capacity);
+		this.blockFileOffset = Arrays.copyOf(this.blockFileOffset, capacity);
+		this.blockSize = Arrays.copyOf(this.blockSize, capacity);
+		this.blockId = Arrays.copyOf(this.blockId, capacity);
+	}
+
+	/**
+	 * Find the block holding the given position in the item.
+	 * The current block is tried first, as most reads follow on from the last one,
+	 * otherwise it's a binary search of the block start positions.
+	 * @param location
+	 * @return the block, or the last block if the location is past the end
+	 */
+	private int findBlock(long location) {
+		int block = this.currentBlock;
+		if (block < this.blockCount &&
+			location >= this.blockStart[block] &&
+			(location < this.blockStart[block] + this.blockSize[block] || block == this.blockCount - 1))
+		{
+			return block;
+		}
+		// the next one?
+		block++;
+		if (block < this.blockCount &&
+			location >= this.blockStart[block] &&
+			location < this.blockStart[block] + this.blockSize[block])
+		{
+			return block;
+		}
+
+		int low = 0;
+		int high = this.blockCount - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (this.blockStart[mid] <= location) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
 	public long length() {
 		return this.length;
 	}
@@ -180,6 +278,7 @@ public class PSTNodeInputStream extends InputStream {
 	public int read()
 			throws IOException
 	{
+		this.ensureOpen();
 
 		// first deal with items < 8K and we have all the data already
 		if (this.allData != null) {
@@ -189,47 +288,24 @@ public class PSTNodeInputStream extends InputStream {
 			}
 			int value = this.allData[(int)this.currentLocation] & 0xFF;
 			this.currentLocation++;
-			if (this.encrypted) {
-				value = PSTObject.compEnc[value];
-			}
 			return value;
 		}
 
-		OffsetIndexItem item = this.indexItems.get(this.currentBlock);
-		long skipPoint = this.skipPoints.get(currentBlock);
-		if (this.currentLocation+1 > skipPoint+item.size) {
-			// got to move to the next block
-			this.currentBlock++;
-
-			if (this.currentBlock >= this.indexItems.size()) {
+		// get the next byte from the block we are in
+		long index = this.currentLocation - this.windowStart;
+		if (this.window == null || index < 0 || index >= this.windowLength) {
+			if (!this.loadWindow(this.currentLocation)) {
 				return -1;
 			}
-
-			item = this.indexItems.get(this.currentBlock);
-			skipPoint = this.skipPoints.get(currentBlock);
-		}
-
-		// get the next byte.
-		long pos = (item.fileOffset + (this.currentLocation - skipPoint));
-		if (in.getFilePointer()  != pos) {
-			in.seek(pos);
-		}
-
-		int output = in.read();
-		if (output < 0) {
-			return -1;
-		}
-		if (this.encrypted) {
-			output = PSTObject.compEnc[output];
+			index = this.currentLocation - this.windowStart;
 		}
+		int output = this.window[(int)index] & 0xFF;
 
 		this.currentLocation++;
 
 		return output;
 	}
 
-	private int totalLoopCount = 0;
-
 	/**
 	 * Read a block from the input stream.
 	 * Recommended block size = 8176 (size used internally by PSTs)
@@ -241,109 +317,434 @@ public class PSTNodeInputStream extends InputStream {
 	public int read(byte[] output)
 			throws IOException
 	{
-		// this method is implemented in an attempt to make things a bit faster than the byte-by-byte read() crap above.
-		// it's tricky 'cause we have to copy blocks from a few different areas.
+		return this.read(output, 0, output.length);
+	}
+
+	@Override
+	public int read(byte[] output, int offset, int length)
+			throws IOException
+	{
+		if (offset < 0 || length < 0 || length > output.length - offset) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (length == 0) {
+			return 0;
+		}
+		return this.read(ByteBuffer.wrap(output, offset, length));
+	}
+
+	/**
+	 * Read from the current position into the buffer, as much as will fit.
+	 * Blocks are read straight from the file into the buffer and only the bytes
+	 * delivered are decoded, nothing is allocated per block.
+	 * @param output
+	 * @return the number of bytes read, or -1 at the end of the item
+	 * @throws IOException
+	 */
+	public int read(ByteBuffer output)
+			throws IOException
+	{
+		int bytesRead = this.readAt(this.currentLocation, output);
+		if (bytesRead > 0) {
+			this.currentLocation += bytesRead;
+		}
+		return bytesRead;
+	}
 
+	/**
+	 * Read from the given position in the item, without moving the current position.
+	 * Finding the position costs the same wherever it is in the item.
+	 * @param position position in the item to read from
+	 * @param output
+	 * @param offset
+	 * @param length
+	 * @return the number of bytes read, or -1 if the position is at or past the end of the item
+	 * @throws IOException
+	 */
+	public int readAt(long position, byte[] output, int offset, int length)
+			throws IOException
+	{
+		if (offset < 0 || length < 0 || length > output.length - offset) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (length == 0) {
+			return 0;
+		}
+		return this.readAt(position, ByteBuffer.wrap(output, offset, length));
+	}
+
+	/**
+	 * Read from the given position in the item into the buffer, as much as will fit,
+	 * without moving the current position.
+	 * @param position position in the item to read from
+	 * @param output
+	 * @return the number of bytes read, or -1 if the position is at or past the end of the item
+	 * @throws IOException
+	 */
+	public int readAt(long position, ByteBuffer output)
+			throws IOException
+	{
+		this.ensureOpen();
+		if (position < 0) {
+			throw new IllegalArgumentException("Negative position");
+		}
 
-		if (this.currentLocation == this.length) {
+		if (position >= this.length) {
 			// EOF
 			return -1;
 		}
 
 		// first deal with the small stuff
 		if (this.allData != null) {
-			int bytesRemaining = (int)(this.length - this.currentLocation);
-			if (output.length >= bytesRemaining) {
-				System.arraycopy(this.allData, (int)this.currentLocation, output, 0, bytesRemaining);
-				if (this.encrypted) {
-					PSTObject.decode(output);
+			int bytesToCopy = (int)Math.min(output.remaining(), this.length - position);
+			output.put(this.allData, (int)position, bytesToCopy);
+			return bytesToCopy;
+		}
+
+		if (this.blockCount == 0) {
+			return -1;
+		}
+
+		int totalBytesFilled = 0;
+		int block = this.findBlock(position);
+
+		// Runs of blocks are only read in one go for reads that carry on from the last one,
+		// or that need more than the block they start in.
+		// Small reads from anywhere else (table headers, page maps, values) are served
+		// a block at a time through the file's block cache.
+		boolean coalesce = position == this.sequentialPosition ||
+			position - this.blockStart[block] + output.remaining() > this.blockSize[block];
+
+		// while we still need to fill the buffer
+		while (output.hasRemaining() && position < this.length) {
+
+			// fill up the output from where we are
+			// get the current block, either to the end, or until the output is full
+			int currentPosInBlock = (int)(position - this.blockStart[block]);
+			if (currentPosInBlock >= this.blockSize[block]) {
+				// move to the next block
+				if (block + 1 >= this.blockCount) {
+					break;
 				}
-				this.currentLocation += bytesRemaining; // should be = to this.length
-				return bytesRemaining;
+				block++;
+				continue;
+			}
+			this.currentBlock = block;
+
+			int bytesToRead = (int)Math.min(this.blockSize[block] - currentPosInBlock, this.length - position);
+			bytesToRead = Math.min(bytesToRead, output.remaining());
+			int start = output.position();
+			int bytesRead;
+			boolean decoded = false;
+			if (!coalesce && (block < this.runFirstBlock || block > this.runLastBlock)) {
+				// the block by itself, already decoded
+				if (!this.loadWindow(position)) {
+					break;
+				}
+				bytesToRead = (int)Math.min(bytesToRead, this.windowLength - (position - this.windowStart));
+				output.put(this.window, (int)(position - this.windowStart), bytesToRead);
+				bytesRead = bytesToRead;
+				decoded = true;
+			} else if (this.loadRun(block)) {
+				// copy out of the run we already have
+				output.put(this.runBuffer, (int)(this.blockFileOffset[block] + currentPosInBlock - this.runFileOffset), bytesToRead);
+				bytesRead = bytesToRead;
 			} else {
-				System.arraycopy(this.allData, (int)this.currentLocation, output, 0, output.length);
-				if (this.encrypted) {
-					PSTObject.decode(output);
+				int limit = output.limit();
+				output.limit(start + bytesToRead);
+				bytesRead = in.read(this.blockFileOffset[block] + currentPosInBlock, output);
+				output.limit(limit);
+				if (bytesRead <= 0) {
+					// the file has been cut short
+					break;
 				}
-				this.currentLocation += output.length;
-				return output.length;
 			}
+
+			// decode what we just read if required
+			if (this.crypt != null && !decoded) {
+				this.crypt.decode(output, start, bytesRead, this.blockId[block], currentPosInBlock);
+			}
+			totalBytesFilled += bytesRead;
+			position += bytesRead;
 		}
 
-		boolean filled = false;
-		int totalBytesFilled = 0;
-		// while we still need to fill the array
-		while (!filled) {
+		if (totalBytesFilled == 0) {
+			return -1;
+		}
+		this.sequentialPosition = position;
+		return totalBytesFilled;
+	}
 
-			// fill up the output from where we are
-			// get the current block, either to the end, or until the length of the output
-			OffsetIndexItem offset = this.indexItems.get(this.currentBlock);
-			long skipPoint = this.skipPoints.get(currentBlock);
-			int currentPosInBlock = (int)(this.currentLocation - skipPoint);
-			in.seek(offset.fileOffset + currentPosInBlock);
-
-			long nextSkipPoint = skipPoint + offset.size;
-			int bytesRemaining = (output.length - totalBytesFilled);
-			// if the total bytes remaining if going to take us past our size
-			if (bytesRemaining > ((int)(this.length - this.currentLocation))) {
-				// we only have so much to give
-				bytesRemaining = (int)(this.length - this.currentLocation);
+	/**
+	 * Load the (decoded) block holding the given position for the single byte and primitive reads.
+	 * Blocks come through the file's block cache, so each one is only read once.
+	 * @param position
+	 * @return false if the position is past the end of the item
+	 * @throws IOException
+	 */
+	private boolean loadWindow(long position)
+			throws IOException
+	{
+		if (this.allData != null) {
+			this.window = this.allData;
+			this.windowStart = 0;
+			this.windowLength = this.allData.length;
+			return position < this.windowLength;
+		}
+		if (this.blockCount == 0 || position >= this.length) {
+			return false;
+		}
+		int block = this.findBlock(position);
+		if (position - this.blockStart[block] >= this.blockSize[block]) {
+			// the blocks are shorter than the item claims to be
+			return false;
+		}
+		this.currentBlock = block;
+		this.window = this.pstFile.readBlock(this.blockId[block], this.blockFileOffset[block], this.blockSize[block]);
+		this.windowStart = this.blockStart[block];
+		this.windowLength = (int)Math.min(this.window.length, this.length - this.windowStart);
+		return true;
+	}
+
+	/**
+	 * Read an unsigned byte at the given position in the item, the current position is not changed.
+	 * @param position
+	 * @return the value
+	 * @throws IOException
+	 * @throws PSTException if the position is past the end of the item
+	 */
+	int readU8(long position)
+			throws IOException, PSTException
+	{
+		this.ensureOpen();
+		long index = position - this.windowStart;
+		if (this.window == null || index < 0 || index >= this.windowLength) {
+			if (position < 0 || !this.loadWindow(position)) {
+				throw new PSTException("Unable to read past end of item! size = "+this.length+", reading at:"+position);
 			}
+			index = position - this.windowStart;
+		}
+		return this.window[(int)index] & 0xFF;
+	}
 
-			if (nextSkipPoint >= this.currentLocation + bytesRemaining) {
-				// we can fill the output with the rest of our current block!
-				byte[] chunk = new byte[bytesRemaining];
-				in.read(chunk);
+	/**
+	 * Read an unsigned little endian short at the given position in the item.
+	 */
+	int readU16(long position)
+			throws IOException, PSTException
+	{
+		return (int)this.readLittleEndian(position, 2);
+	}
 
-				System.arraycopy(chunk, 0, output, totalBytesFilled, bytesRemaining);
-				totalBytesFilled += bytesRemaining;
-				// we are done!
-				filled = true;
-				this.currentLocation += bytesRemaining;
-			} else {
-				// we need to read out a whole chunk and keep going
-				int bytesToRead = offset.size - currentPosInBlock;
-				byte[] chunk = new byte[bytesToRead];
-				in.read(chunk);
-				System.arraycopy(chunk, 0, output, totalBytesFilled, bytesToRead);
-				totalBytesFilled += bytesToRead;
-				this.currentBlock++;
-				this.currentLocation += bytesToRead;
+	/**
+	 * Read an unsigned little endian int at the given position in the item.
+	 */
+	long readU32(long position)
+			throws IOException, PSTException
+	{
+		return this.readLittleEndian(position, 4);
+	}
+
+	/**
+	 * Read a little endian long at the given position in the item.
+	 */
+	long readU64(long position)
+			throws IOException, PSTException
+	{
+		return this.readLittleEndian(position, 8);
+	}
+
+	/**
+	 * Read a little endian value of up to 8 bytes at the given position in the item, the current position is not changed.
+	 * @param position
+	 * @param bytes
+	 * @return the value
+	 * @throws IOException
+	 * @throws PSTException if the value runs past the end of the item
+	 */
+	long readLittleEndian(long position, int bytes)
+			throws IOException, PSTException
+	{
+		this.ensureOpen();
+		long index = position - this.windowStart;
+		if (this.window == null || index < 0 || index + bytes > this.windowLength) {
+			if (position < 0 || !this.loadWindow(position)) {
+				throw new PSTException("Unable to read past end of item! size = "+this.length+", reading at:"+position);
 			}
-			totalLoopCount++;
+			index = position - this.windowStart;
 		}
-
-		// decode the array if required
-		if (this.encrypted) {
-			PSTObject.decode(output);
+		if (index + bytes > this.windowLength) {
+			// it runs over the end of the block, take it a byte at a time
+			long value = 0;
+			for (int x = bytes - 1; x >= 0; x--) {
+				value = (value << 8) | this.readU8(position + x);
+			}
+			return value;
+		}
+		long value = 0;
+		for (int x = (int)index + bytes - 1; x >= index; x--) {
+			value = (value << 8) | (this.window[x] & 0xFF);
 		}
+		return value;
+	}
 
-		// fill up our chunk
-		// move to the next chunk
-		return totalBytesFilled;
+	/**
+	 * Find the last block of the run starting at firstBlock.
+	 * A run is a set of consecutive blocks that are also next to each other in the file.
+	 * @param firstBlock
+	 * @return the last block of the run, the same as firstBlock if the next block isn't next to it
+	 */
+	private int findRunEnd(int firstBlock) {
+		long firstOffset = this.blockFileOffset[firstBlock];
+		int lastBlock = firstBlock;
+		long end = firstOffset + this.blockSize[firstBlock];
+		while (lastBlock + 1 < this.blockCount) {
+			long nextOffset = this.blockFileOffset[lastBlock + 1];
+			long nextEnd = nextOffset + this.blockSize[lastBlock + 1];
+			if (nextOffset < end ||
+				nextOffset - end > MAX_RUN_GAP ||
+				nextEnd - firstOffset > MAX_RUN_SIZE)
+			{
+				break;
+			}
+			end = nextEnd;
+			lastBlock++;
+		}
+		return lastBlock;
 	}
 
-	@Override
-	public int read(byte[] output, int offset, int length)
+	/**
+	 * Make sure the run buffer holds the given block, reading the whole run it belongs to in one go if it doesn't.
+	 * If read ahead is turned on, the next run is then read in the background.
+	 * @param block
+	 * @return false if the block isn't part of a run, it should just be read by itself
+	 * @throws IOException
+	 */
+	private boolean loadRun(int block)
 			throws IOException
 	{
-		if (this.currentLocation == this.length) {
-			// EOF
-			return -1;
+		if (block >= this.runFirstBlock && block <= this.runLastBlock) {
+			return true;
+		}
+
+		// wait for any read ahead, we either want it or need the buffer back
+		if (this.readAhead != null) {
+			int bytesRead = this.waitForReadAhead();
+			if (block == this.readAheadFirstBlock &&
+				bytesRead == this.getRunSize(this.readAheadFirstBlock, this.readAheadLastBlock))
+			{
+				byte[] temp = this.runBuffer;
+				this.runBuffer = this.readAheadBuffer;
+				this.readAheadBuffer = temp;
+				this.runFileOffset = this.readAheadFileOffset;
+				this.runFirstBlock = this.readAheadFirstBlock;
+				this.runLastBlock = this.readAheadLastBlock;
+				this.startReadAhead(this.runLastBlock + 1);
+				return true;
+			}
 		}
 
-		if (output.length < length) {
-			length = output.length;
+		int lastBlock = this.findRunEnd(block);
+		if (lastBlock == block) {
+			return false;
+		}
+
+		int runSize = this.getRunSize(block, lastBlock);
+		if (this.runBuffer == null || this.runBuffer.length < runSize) {
+			this.runBuffer = new byte[runSize];
+		}
+		this.runFirstBlock = -1;
+		this.runLastBlock = -1;
+		long fileOffset = this.blockFileOffset[block];
+		if (in.read(fileOffset, this.runBuffer, 0, runSize) != runSize) {
+			// the file has been cut short, leave it to the block by block reads
+			return false;
+		}
+		this.runFileOffset = fileOffset;
+		this.runFirstBlock = block;
+		this.runLastBlock = lastBlock;
+		this.startReadAhead(lastBlock + 1);
+		return true;
+	}
+
+	private int getRunSize(int firstBlock, int lastBlock) {
+		return (int)(this.blockFileOffset[lastBlock] + this.blockSize[lastBlock] - this.blockFileOffset[firstBlock]);
+	}
+
+	/**
+	 * start reading the run beginning at firstBlock in the background, if read ahead is turned on
+	 */
+	private void startReadAhead(int firstBlock) {
+		if (!this.pstFile.isReadAheadEnabled() || firstBlock >= this.blockCount) {
+			return;
+		}
+		int lastBlock = this.findRunEnd(firstBlock);
+		if (lastBlock == firstBlock) {
+			return;
 		}
+		final int runSize = this.getRunSize(firstBlock, lastBlock);
+		if (this.readAheadBuffer == null || this.readAheadBuffer.length < runSize) {
+			this.readAheadBuffer = new byte[runSize];
+		}
+		final byte[] buffer = this.readAheadBuffer;
+		final long fileOffset = this.blockFileOffset[firstBlock];
+		this.readAheadFileOffset = fileOffset;
+		this.readAheadFirstBlock = firstBlock;
+		this.readAheadLastBlock = lastBlock;
+		try {
+			this.readAhead = this.pstFile.getReadAheadExecutor().submit(new Callable<Integer>() {
+				public Integer call()
+					throws IOException
+				{
+					return in.read(fileOffset, buffer, 0, runSize);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			this.readAhead = null;
+		}
+	}
 
-		byte[] buf = new byte[length];
-		int lengthRead = this.read(buf);
+	/**
+	 * @return the number of bytes the read ahead got, or -1 if it failed
+	 */
+	private int waitForReadAhead() {
+		Future<Integer> pending = this.readAhead;
+		this.readAhead = null;
+		try {
+			return pending.get();
+		} catch (InterruptedException e) {
+			// we can't let go of the buffer while it might still be written to
+			this.readAheadBuffer = null;
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			// just read it again ourselves
+		}
+		return -1;
+	}
 
-		System.arraycopy(buf, 0, output, offset, lengthRead);
+	/**
+	 * Part of the ReadableByteChannel view of the item.
+	 */
+	public boolean isOpen() {
+		return this.open;
+	}
 
-		return lengthRead;
+	/**
+	 * Closes the item, every read after this throws ClosedChannelException.
+	 * The file itself stays open.
+	 */
+	@Override
+	public void close() {
+		this.open = false;
 	}
 
+	private void ensureOpen()
+			throws ClosedChannelException
+	{
+		if (!this.open) {
+			throw new ClosedChannelException();
+		}
+	}
 
 	@Override
 	public void reset() {
@@ -361,14 +762,14 @@ public class PSTNodeInputStream extends InputStream {
 	 * @return
 	 */
 	public Long[] getBlockOffsets() {
-		if (this.skipPoints.size() == 0) {
+		if (this.blockCount == 0) {
 			Long[] output = new Long[1];
 			output[0]=this.length;
 			return output;
 		} else {
-			Long[] output = new Long[this.skipPoints.size()];
+			Long[] output = new Long[this.blockCount];
 			for (int x =0 ; x < output.length; x++) {
-				output[x] = new Long(this.skipPoints.get(x) + this.indexItems.get(x).size);
+				output[x] = new Long(this.blockStart[x] + this.blockSize[x]);
 			}
 			return output;
 		}
@@ -376,9 +777,9 @@ public class PSTNodeInputStream extends InputStream {
 
 	/*
 	public int[] getBlockOffsetsInts() {
-		int[] out = new int[this.skipPoints.size()];
-		for (int x = 0; x < this.skipPoints.size(); x++) {
-			out[x] = this.skipPoints.get(x).intValue();
+		int[] out = new int[this.blockCount];
+		for (int x = 0; x < this.blockCount; x++) {
+			out[x] = (int)this.blockStart[x];
 		}
 		return out;
 	}
@@ -399,41 +800,27 @@ public class PSTNodeInputStream extends InputStream {
 		}
 
 		// get us to the right block
-		long skipPoint = 0;
-		this.currentBlock = 0;
-		if (this.allData == null) {
-			skipPoint = this.skipPoints.get(this.currentBlock + 1);
-			while (location >= skipPoint) {
-				this.currentBlock++;
-				// is this the last block?
-				if (this.currentBlock == this.skipPoints.size()-1) {
-					// that's all folks
-					break;
-				} else {
-					skipPoint = this.skipPoints.get(this.currentBlock + 1);
-				}
-			}
+		if (this.blockCount > 0) {
+			this.currentBlock = this.findBlock(location);
 		}
 
 		// now move us to the right position in there
+		// (reads are positional, so there is no file pointer to move)
 		this.currentLocation = location;
-
-		long blockStart = 0;
-		if (this.allData == null) {
-			blockStart = this.indexItems.get(currentBlock).fileOffset;
-		}
-		long newFilePos = blockStart + (location - skipPoint);
-		this.in.seek(newFilePos);
-
 	}
 
 	public long seekAndReadLong(long location, int bytes)
 			throws IOException, PSTException
 	{
 		this.seek(location);
-		byte[] buffer = new byte[bytes];
-		this.read(buffer);
-		return PSTObject.convertLittleEndianBytesToLong(buffer);
+		// anything past the end of the item reads as 0
+		int available = (int)Math.min(bytes, this.length - location);
+		long value = 0;
+		if (available > 0) {
+			value = this.readLittleEndian(location, available);
+			this.currentLocation += available;
+		}
+		return value;
 	}
 
 	public PSTFile getPSTFile() {
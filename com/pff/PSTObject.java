@@ -74,14 +74,15 @@ public class PSTObject {
 
 	
 	public String getItemsString() {
-		return items.toString();
+		return table.getItems().toString();
 	}
 	
 	protected PSTFile pstFile;
 	protected byte[] data;
 	protected DescriptorIndexNode descriptorIndexNode;
-	protected HashMap<Integer, PSTTableBCItem> items;
+	// the subnodes of the object, read through getLocalDescriptorItems the first time they are needed
 	protected HashMap<Integer, PSTDescriptorItem> localDescriptorItems = null;
+	private boolean localDescriptorItemsLoaded = false;
 	
 	protected LinkedHashMap<String, HashMap<DescriptorIndexNode, PSTObject>> children;
 	
@@ -93,15 +94,8 @@ public class PSTObject {
 
 		//descriptorIndexNode.readData(theFile);
 		//PSTTableBC table = new PSTTableBC(descriptorIndexNode.dataBlock.data, descriptorIndexNode.dataBlock.blockOffsets);
-		PSTTableBC table = new PSTTableBC(new PSTNodeInputStream(pstFile, pstFile.getOffsetIndexNode(descriptorIndexNode.dataOffsetIndexIdentifier)));
+		this.table = new PSTTableBC(new PSTNodeInputStream(pstFile, pstFile.getOffsetIndexNode(descriptorIndexNode.dataOffsetIndexIdentifier)));
 		//System.out.println(table);
-		this.items = table.getItems();
-		
-		if (descriptorIndexNode.localDescriptorsOffsetIndexIdentifier != 0) {
-			//PSTDescriptor descriptor = new PSTDescriptor(theFile, descriptorIndexNode.localDescriptorsOffsetIndexIdentifier);
-			//localDescriptorItems = descriptor.getChildren();
-			this.localDescriptorItems = theFile.getPSTDescriptorItems(descriptorIndexNode.localDescriptorsOffsetIndexIdentifier);
-		}
 	}
 	
 	/**
@@ -109,14 +103,16 @@ public class PSTObject {
 	 * @param theFile
 	 * @param folderIndexNode
 	 * @param table
+	 * @param localDescriptorItems the subnodes, or null to read them from the descriptor node when they are first needed
 	 */
 	protected PSTObject(PSTFile theFile, DescriptorIndexNode folderIndexNode, PSTTableBC table, HashMap<Integer, PSTDescriptorItem> localDescriptorItems) {
 		this.pstFile = theFile;
 		this.descriptorIndexNode = folderIndexNode;
-		this.items = table.getItems();
 		this.table = table;
 		this.localDescriptorItems = localDescriptorItems;
+		this.localDescriptorItemsLoaded = localDescriptorItems != null || folderIndexNode == null;
 	}
+	// the properties of the object, sorted on property id
 	protected PSTTableBC table;
 	
 	
@@ -138,6 +134,41 @@ public class PSTObject {
 		return this.descriptorIndexNode.descriptorIdentifier;
 	}
 
+	/**
+	 * get the subnodes of this item, reading them from the file the first time.
+	 * Most properties live in the property context, so the subnode b-tree is only read
+	 * for large values, the recipient and attachment tables and the attachments themselves.
+	 * @return the subnodes, or null if the item has none
+	 */
+	protected HashMap<Integer, PSTDescriptorItem> getLocalDescriptorItems()
+		throws PSTException, IOException
+	{
+		if ( !this.localDescriptorItemsLoaded ) {
+			if ( this.descriptorIndexNode.localDescriptorsOffsetIndexIdentifier != 0 ) {
+				this.localDescriptorItems = this.pstFile.getPSTDescriptorItems(this.descriptorIndexNode.localDescriptorsOffsetIndexIdentifier);
+			}
+			this.localDescriptorItemsLoaded = true;
+		}
+		return this.localDescriptorItems;
+	}
+
+	/**
+	 * get a subnode of this item
+	 * @return null if the subnode doesn't exist or the subnodes couldn't be read
+	 */
+	protected PSTDescriptorItem getLocalDescriptorItem(int identifier) {
+		try {
+			HashMap<Integer, PSTDescriptorItem> items = this.getLocalDescriptorItems();
+			if ( items != null ) {
+				return items.get(identifier);
+			}
+		} catch (Exception e) {
+			System.err.printf("Exception reading subnodes of descriptor %d: %s\n",
+					this.descriptorIndexNode.descriptorIdentifier, e.toString());
+		}
+		return null;
+	}
+
 	public int getNodeType() {
 		return PSTObject.getNodeType(this.descriptorIndexNode.descriptorIdentifier);
 	}
@@ -150,20 +181,28 @@ public class PSTObject {
 		return getIntItem(identifier, 0);
 	}
 	protected int getIntItem(int identifier, int defaultValue) {
-		if (this.items.containsKey(identifier)) {
-			PSTTableBCItem item = (PSTTableBCItem)this.items.get(identifier);
-			return item.entryValueReference;
+		int index = this.table.indexOf(identifier);
+		if (index != -1) {
+			return this.table.getValueReference(index);
 		}
 		return defaultValue;
 	}
+
+	/**
+	 * get the item for a property
+	 * @return null if the object doesn't have the property
+	 */
+	protected PSTTableBCItem getItem(int identifier) {
+		return this.table.getItem(identifier);
+	}
 	
 	protected boolean getBooleanItem(int identifier) {
 		return getBooleanItem(identifier, false);
 	}
 	protected boolean getBooleanItem(int identifier, boolean defaultValue) {
-		if (this.items.containsKey(identifier)) {
-			PSTTableBCItem item = (PSTTableBCItem)this.items.get(identifier);
-			return item.entryValueReference != 0;
+		int index = this.table.indexOf(identifier);
+		if (index != -1) {
+			return this.table.getValueReference(index) != 0;
 		}
 		return defaultValue;
 	}
@@ -172,9 +211,13 @@ public class PSTObject {
 		return getDoubleItem(identifier, 0);
 	}
 	protected double getDoubleItem(int identifier, double defaultValue) {
-		if (this.items.containsKey(identifier)) {
-			PSTTableBCItem item = (PSTTableBCItem)this.items.get(identifier);
-			long longVersion = PSTObject.convertLittleEndianBytesToLong(item.data);
+		PSTTableBCItem item = this.getItem(identifier);
+		if (item != null) {
+			byte[] data = item.getData();
+			if ( data == null ) {
+				return defaultValue;
+			}
+			long longVersion = PSTObject.convertLittleEndianBytesToLong(data);
 			return Double.longBitsToDouble(longVersion);
 		}
 		return defaultValue;
@@ -185,15 +228,17 @@ public class PSTObject {
 		return getLongItem(identifier, 0);
 	}
 	protected long getLongItem(int identifier, long defaultValue) {
-		if (this.items.containsKey(identifier)) {
-			PSTTableBCItem item = (PSTTableBCItem)this.items.get(identifier);
-			if (item.entryValueType == 0x0003) {
+		int index = this.table.indexOf(identifier);
+		if (index != -1) {
+			if (this.table.getValueType(index) == 0x0003) {
 				// we are really just an int
-				return item.entryValueReference;
-			} else if ( item.entryValueType == 0x0014 ){
+				return this.table.getValueReference(index);
+			} else if ( this.table.getValueType(index) == 0x0014 ){
+				PSTTableBCItem item = this.getItem(identifier);
 				// we are a long
-				if ( item.data != null && item.data.length == 8 ) {
-					return PSTObject.convertLittleEndianBytesToLong(item.data, 0, 8);
+				byte[] data = item.getData();
+				if ( data != null && data.length == 8 ) {
+					return PSTObject.convertLittleEndianBytesToLong(data, 0, 8);
 				} else {
 					System.err.printf("Invalid data length for long id 0x%04X\n", identifier);
 					// Return the default value for now...
@@ -207,16 +252,18 @@ public class PSTObject {
 		return getStringItem(identifier, 0);
 	}
 	protected String getStringItem(int identifier, int stringType) {
-		return getStringItem(identifier, stringType, null);
+		return getStringItem(identifier, stringType, this.getStringCodePage());
 	}
 	protected String getStringItem(int identifier, int stringType, String codepage) {
-		PSTTableBCItem item = (PSTTableBCItem)this.items.get(identifier);
+		if (codepage == null) {
+			return getStringItem(identifier, stringType, this.getStringCodePage());
+		}
+		return getStringItem(identifier, stringType, PSTFile.getCodePage(codepage));
+	}
+	protected String getStringItem(int identifier, int stringType, PSTFile.CodePage codepage) {
+		PSTTableBCItem item = this.getItem(identifier);
 		if ( item != null ) {
 
-			if (codepage == null) {
-				codepage = this.getStringCodepage();
-			}
-
 			// get the string type from the item if not explicitly set
 			if ( stringType == 0 ) {
 				stringType = item.entryValueType;
@@ -224,15 +271,17 @@ public class PSTObject {
 
 			// see if there is a descriptor entry
 			if ( !item.isExternalValueReference ) {
-				//System.out.println("here: "+new String(item.data)+this.descriptorIndexNode.descriptorIdentifier);
-				return PSTObject.createJavaString(item.data, stringType, codepage);
+				//System.out.println("here: "+new String(item.getData())+this.descriptorIndexNode.descriptorIdentifier);
+				byte[] data = item.getData();
+				if ( data == null ) {
+					return "";
+				}
+				return PSTObject.createJavaString(data, stringType, codepage);
 			}
-			if (this.localDescriptorItems != null &&
-				this.localDescriptorItems.containsKey(item.entryValueReference))
+			PSTDescriptorItem descItem = this.getLocalDescriptorItem(item.entryValueReference);
+			if (descItem != null)
 			{
 				// we have a hit!
-				PSTDescriptorItem descItem = (PSTDescriptorItem)this.localDescriptorItems.get(item.entryValueReference);
-				
 				try {
 					byte[] data = descItem.getData();
 					if ( data == null ) {
@@ -256,18 +305,46 @@ public class PSTObject {
 	}
 
 	static String createJavaString(byte[] data, int stringType, String codepage)
+	{
+		return createJavaString(data, stringType, PSTFile.getCodePage(codepage));
+	}
+
+	private static final Charset UTF_16LE = Charset.forName("UTF-16LE");
+
+	static String createJavaString(byte[] data, int stringType, PSTFile.CodePage codepage)
 	{
 		try {
 			if ( stringType == 0x1F ) {
-				return new String(data, "UTF-16LE");
+				// copy the characters straight out, as long as there are no surrogates for the decoder to check
+				if ( (data.length & 1) == 0 ) {
+					char[] chars = new char[data.length / 2];
+					int x = 0;
+					for (; x < chars.length; x++) {
+						char c = (char)((data[2*x] & 0xFF) | (data[2*x+1] & 0xFF) << 8);
+						if ( c >= 0xD800 && c <= 0xDFFF ) {
+							break;
+						}
+						chars[x] = c;
+					}
+					if ( x == chars.length ) {
+						return new String(chars);
+					}
+				}
+				return new String(data, UTF_16LE);
 			}
 
-			if (codepage == null) {
-				return new String(data);
-			} else {
-				codepage = codepage.toUpperCase();
-				return new String(data, codepage);
+			if ( codepage.asciiCompatible ) {
+				// plain ASCII needs no decoding
+				char[] chars = new char[data.length];
+				int x = 0;
+				for (; x < data.length && data[x] >= 0; x++) {
+					chars[x] = (char)data[x];
+				}
+				if ( x == data.length ) {
+					return new String(chars);
+				}
 			}
+			return new String(data, codepage.charset);
 			/*
 			if (codepage == null || codepage.toUpperCase().equals("UTF-8") || codepage.toUpperCase().equals("UTF-7")) {
 				// PST UTF-8 strings are not... really UTF-8
@@ -291,26 +368,39 @@ public class PSTObject {
 		}
 	}
 
-	private String getStringCodepage() {
-		// try and get the codepage
-		PSTTableBCItem cpItem = (PSTTableBCItem)this.items.get(0x3FFD); // PidTagMessageCodepage
-		if (cpItem == null) {
-			cpItem = (PSTTableBCItem)this.items.get(0x3FDE); // PidTagInternetCodepage
-		}
-		if (cpItem != null) {
-			return PSTFile.getInternetCodePageCharset(cpItem.entryValueReference);
+	// the code page of the 8 bit strings of this object, found when the first one is read
+	private volatile PSTFile.CodePage stringCodePage = null;
+
+	PSTFile.CodePage getStringCodePage() {
+		PSTFile.CodePage codePage = this.stringCodePage;
+		if (codePage == null) {
+			// try and get the codepage
+			int cpIndex = this.table.indexOf(0x3FFD); // PidTagMessageCodepage
+			if (cpIndex == -1) {
+				cpIndex = this.table.indexOf(0x3FDE); // PidTagInternetCodepage
+			}
+			if (cpIndex != -1) {
+				codePage = PSTFile.getCodePage(this.table.getValueReference(cpIndex));
+			} else {
+				codePage = PSTFile.DEFAULT_CODE_PAGE;
+			}
+			this.stringCodePage = codePage;
 		}
-		return null;
+		return codePage;
 	}
 	
 	public Date getDateItem(int identifier) {
-		if ( this.items.containsKey(identifier) ) {
-			PSTTableBCItem item = (PSTTableBCItem)this.items.get(identifier);
-			if (item.data.length == 0 ) {
+		PSTTableBCItem item = this.getItem(identifier);
+		if ( item != null ) {
+			byte[] data = item.getData();
+			if ( data == null ) {
+				return null;
+			}
+			if (data.length == 0 ) {
 				return new Date(0);
 			}
-			int high = (int)PSTObject.convertLittleEndianBytesToLong(item.data, 4, 8);
-			int low = (int)PSTObject.convertLittleEndianBytesToLong(item.data, 0, 4);
+			int high = (int)PSTObject.convertLittleEndianBytesToLong(data, 4, 8);
+			int low = (int)PSTObject.convertLittleEndianBytesToLong(data, 0, 4);
 			 
 			return PSTObject.filetimeToDate(high, low);
 		}
@@ -318,17 +408,16 @@ public class PSTObject {
 	}
 	
 	protected byte[] getBinaryItem(int identifier) {
-		if (this.items.containsKey(identifier)) {
-			PSTTableBCItem item = (PSTTableBCItem)this.items.get(identifier);
+		PSTTableBCItem item = this.getItem(identifier);
+		if (item != null) {
 			if ( item.entryValueType == 0x0102 ) {
 				if ( !item.isExternalValueReference ) {
-					return item.data;
+					return item.getData();
 				}
-				if ( this.localDescriptorItems != null &&
-					 this.localDescriptorItems.containsKey(item.entryValueReference))
+				PSTDescriptorItem descItem = this.getLocalDescriptorItem(item.entryValueReference);
+				if ( descItem != null )
 				{
 					// we have a hit!
-					PSTDescriptorItem descItem = (PSTDescriptorItem)this.localDescriptorItems.get(item.entryValueReference);
 					try {
 						return descItem.getData();
 					} catch (Exception e) {
@@ -355,10 +444,175 @@ public class PSTObject {
 	public String getMessageClass() {
 		return this.getStringItem(0x001a);
 	}
+
+	/**
+	 * get the values of several properties in one pass.
+	 * The codepage and the subnodes are only looked up once, values in the heap are read in the
+	 * order they are stored, and values in subnodes are read in the order of their blocks in the file.
+	 * @param propertyIds the properties to read
+	 * @param values a holder to reuse, or null for a new one
+	 * @return the holder, with the values in the same order as propertyIds
+	 */
+	public PSTPropertyValues getProperties(int[] propertyIds, PSTPropertyValues values) {
+		if (values == null) {
+			values = new PSTPropertyValues();
+		}
+		values.reset(propertyIds);
+
+		int[] heapPositions = new int[propertyIds.length];
+		long[] heapKeys = new long[propertyIds.length];
+		int heapCount = 0;
+		int[] subnodePositions = null;
+		PSTDescriptorItem[] subnodes = null;
+		int subnodeCount = 0;
+
+		for (int x = 0; x < propertyIds.length; x++) {
+			int index = this.table.indexOf(propertyIds[x]);
+			if (index == -1) {
+				continue;
+			}
+			if (this.table.isSubnodeValueReference(index)) {
+				PSTDescriptorItem descItem = this.getLocalDescriptorItem(this.table.getValueReference(index));
+				if (descItem != null) {
+					if (subnodes == null) {
+						subnodePositions = new int[propertyIds.length];
+						subnodes = new PSTDescriptorItem[propertyIds.length];
+					}
+					subnodePositions[subnodeCount] = x;
+					subnodes[subnodeCount++] = descItem;
+				}
+			} else if (this.table.isExternalValueReference(index)) {
+				// the value is held in the key table
+				values.set(x, this.table.getValueType(index), this.table.getValueReference(index), null);
+			} else {
+				heapPositions[heapCount] = x;
+				heapKeys[heapCount++] = this.table.getValueReference(index) & 0xFFFFFFFFL;
+			}
+		}
+
+		PSTFile.CodePage codePage = this.getStringCodePage();
+
+		// heap ids sort on their block first
+		sortPositions(heapPositions, heapKeys, heapCount);
+		for (int x = 0; x < heapCount; x++) {
+			int position = heapPositions[x];
+			int index = this.table.indexOf(propertyIds[position]);
+			byte[] data;
+			try {
+				data = this.table.getValueData(index);
+			} catch (Exception e) {
+				// leave it out, so that it isn't taken for an empty value
+				System.err.println("Unable to read table item "+Integer.toHexString(propertyIds[position])+": "+e.toString());
+				continue;
+			}
+			setPropertyValue(values, position, this.table.getValueType(index), data, codePage);
+		}
+
+		if (subnodeCount > 0) {
+			OffsetIndexItem[] offsetItems = new OffsetIndexItem[subnodeCount];
+			long[] fileOffsets = new long[subnodeCount];
+			int[] order = new int[subnodeCount];
+			for (int x = 0; x < subnodeCount; x++) {
+				order[x] = x;
+				if (subnodes[x].dataBlockData == null) {
+					try {
+						offsetItems[x] = this.pstFile.getOffsetIndexNode(subnodes[x].offsetIndexIdentifier);
+						fileOffsets[x] = offsetItems[x].fileOffset;
+					} catch (Exception e) {
+						System.err.printf("Exception reading subnode 0x%08X: %s\n", subnodes[x].descriptorIdentifier, e.toString());
+						subnodes[x] = null;
+					}
+				}
+			}
+			sortPositions(order, fileOffsets, subnodeCount);
+			for (int x = 0; x < subnodeCount; x++) {
+				PSTDescriptorItem descItem = subnodes[order[x]];
+				if (descItem == null) {
+					continue;
+				}
+				int position = subnodePositions[order[x]];
+				int index = this.table.indexOf(propertyIds[position]);
+				try {
+					byte[] data = descItem.getData(offsetItems[order[x]]);
+					setPropertyValue(values, position, this.table.getValueType(index), data == null ? new byte[0] : data, codePage);
+				} catch (Exception e) {
+					System.err.printf("Exception %s reading %s\n",
+							e.toString(),
+							PSTFile.getPropertyDescription(propertyIds[position], this.table.getValueType(index)));
+				}
+			}
+		}
+
+		return values;
+	}
+
+	/**
+	 * get the values of several properties in one pass
+	 * @see #getProperties(int[], PSTPropertyValues)
+	 */
+	public PSTPropertyValues getProperties(int[] propertyIds) {
+		return this.getProperties(propertyIds, null);
+	}
+
+	private static void setPropertyValue(PSTPropertyValues values, int position, int valueType, byte[] data, PSTFile.CodePage codePage) {
+		switch (valueType) {
+		case 0x001E:
+		case 0x001F:
+			values.set(position, valueType, 0, PSTObject.createJavaString(data, valueType, codePage));
+			break;
+		case 0x0040:
+			if (data.length == 0) {
+				values.set(position, valueType, 0, new Date(0));
+			} else {
+				int high = (int)PSTObject.convertLittleEndianBytesToLong(data, 4, 8);
+				int low = (int)PSTObject.convertLittleEndianBytesToLong(data, 0, 4);
+				values.set(position, valueType, 0, PSTObject.filetimeToDate(high, low));
+			}
+			break;
+		case 0x0005:
+		case 0x0006:
+		case 0x0014:
+			if (data.length == 8) {
+				values.set(position, valueType, PSTObject.convertLittleEndianBytesToLong(data, 0, 8), null);
+			} else {
+				System.err.printf("Invalid data length for 0x%04X\n", values.getPropertyId(position));
+			}
+			break;
+		default:
+			values.set(position, valueType, 0, data);
+			break;
+		}
+	}
+
+	/**
+	 * sort the first count positions on their keys, there are only ever a few of them
+	 */
+	private static void sortPositions(int[] positions, long[] keys, int count) {
+		for (int x = 1; x < count; x++) {
+			int position = positions[x];
+			long key = keys[x];
+			int y = x - 1;
+			while (y >= 0 && keys[y] > key) {
+				positions[y+1] = positions[y];
+				keys[y+1] = keys[y];
+				y--;
+			}
+			positions[y+1] = position;
+			keys[y+1] = key;
+		}
+	}
 	
 	public String toString() {
-		return this.localDescriptorItems + "\n" +
-				(this.items);
+		return this.getLocalDescriptorItemsString() + "\n" +
+				(this.table.getItems());
+	}
+
+	String getLocalDescriptorItemsString() {
+		try {
+			return String.valueOf(this.getLocalDescriptorItems());
+		} catch (Exception e) {
+			return e.toString();
+		}
 	}
 	
 	/**
@@ -497,30 +751,13 @@ public class PSTObject {
 	 * @return decoded data
 	 */
 	protected static byte[] decode(byte[] data) {
-		int temp;
-		for (int x = 0; x < data.length; x++) {
-			temp = data[x] & 0xff;
-			data[x] = (byte)compEnc[temp];
-		}
-		
+		PSTCrypt.permute.decode(data, 0, data.length, 0, 0);
 		return data;
 	}
 	
 
 	protected static byte[] encode(byte[] data) {
-		// create the encoding array...
-		int[] enc = new int[compEnc.length];
-		for (int x = 0; x < enc.length; x++) {
-			enc[compEnc[x]] = x;
-		}
-		
-		// now it's just the same as decode...
-		int temp;
-		for (int x = 0; x < data.length; x++) {
-			temp = data[x] & 0xff;
-			data[x] = (byte)enc[temp];
-		}
-		
+		PSTCrypt.permute.encode(data, 0, data.length, 0, 0);
 		return data;
 	}
 
@@ -627,17 +864,14 @@ public class PSTObject {
 		//PSTTableBC table = new PSTTableBC(folderIndexNode.dataBlock.data, folderIndexNode.dataBlock.blockOffsets);
 		PSTTableBC table = new PSTTableBC(new PSTNodeInputStream(theFile, theFile.getOffsetIndexNode(folderIndexNode.dataOffsetIndexIdentifier)));
 
-		// get the table items and look at the types we are dealing with
-		Set<Integer> keySet = table.getItems().keySet();
-		Iterator<Integer> iterator = keySet.iterator();
-		
+		// look at the types of property in the table to see what we are dealing with
 		String type = "";
 		int nidType = (folderIndexNode.descriptorIdentifier & 0x1F);
 
-		while (iterator.hasNext()) {
-			Integer key = (Integer)iterator.next();
-			if (key.intValue() >= 0x0001 &&
-				key.intValue() <= 0x0bff)
+		for (int index = 0; index < table.getPropertyCount(); index++) {
+			int key = table.getPropertyId(index);
+			if (key >= 0x0001 &&
+				key <= 0x0bff)
 			{
 				type = "Message envelope";
 				if ( nidType != 4 ) {
@@ -645,20 +879,20 @@ public class PSTObject {
 				}
 				break;
 			}
-			/*else if (key.intValue() >= 0x1000 &&
-					 key.intValue() <= 0x2fff)
+			/*else if (key >= 0x1000 &&
+					 key <= 0x2fff)
 			{
 				type = "Message content";
 				break;
 			}*/
-			else if (key.intValue() >= 0x3400 &&
-					 key.intValue() <= 0x35ff)
+			else if (key >= 0x3400 &&
+					 key <= 0x35ff)
 			{
 				type = "Message store";
 				break;
 			}
-			else if (key.intValue() >= 0x3600 &&
-				key.intValue() <= 0x36ff)
+			else if (key >= 0x3600 &&
+				key <= 0x36ff)
 			{
 				type = "Folder and address book";
 				if ( nidType != 2 && nidType != 3 ) {
@@ -666,39 +900,35 @@ public class PSTObject {
 				}
 				break;
 			}
-			/*else if (key.intValue() >= 0x3700 &&
-					key.intValue() <= 0x38ff)
+			/*else if (key >= 0x3700 &&
+					key <= 0x38ff)
 			{
 				type = "Attachment";
 				break;
 			}
-			else if (key.intValue() >= 0x3900 &&
-					key.intValue() <= 0x39ff)
+			else if (key >= 0x3900 &&
+					key <= 0x39ff)
 			{
 				type = "Address book";
 				break;
 			}*/
-			/*else if (key.intValue() >= 0x3a00 &&
-					key.intValue() <= 0x3bff)
+			/*else if (key >= 0x3a00 &&
+					key <= 0x3bff)
 			{
 				type = "Messaging user";
 				break;
 			}*/
-			else if (key.intValue() >= 0x3c00 &&
-					key.intValue() <= 0x3cff)
+			else if (key >= 0x3c00 &&
+					key <= 0x3cff)
 			{
 				type = "Distribution list";
 				break;
 			}
 		}
 		
+		// the subnodes are left for the object to read when it needs them
 		HashMap<Integer, PSTDescriptorItem> localDescriptorItems = null;
 		
-		if (folderIndexNode.localDescriptorsOffsetIndexIdentifier != 0) {
-			//PSTDescriptor descriptor = new PSTDescriptor(theFile, folderIndexNode.localDescriptorsOffsetIndexIdentifier);
-			localDescriptorItems = theFile.getPSTDescriptorItems(folderIndexNode.localDescriptorsOffsetIndexIdentifier);
-		}
-		
 //		System.out.println(type);
 //		System.out.println(table);
 		
@@ -721,7 +951,7 @@ public class PSTObject {
 	static PSTMessage createAppropriatePSTMessageObject(PSTFile theFile, DescriptorIndexNode folderIndexNode, PSTTableBC table, HashMap<Integer, PSTDescriptorItem> localDescriptorItems)
 	{
 
-		PSTTableBCItem item = table.getItems().get(0x001a);
+		PSTTableBCItem item = table.getItem(0x001a);
 		String messageClass = "";
 		if ( item != null )
 		{
@@ -0,0 +1,463 @@
+/**
+ * Copyright 2010 Richard Johnson & Orin Eman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ---
+ *
+ * This file is part of java-libpst.
+ *
+ * java-libpst is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * java-libpst is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-libpst.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.pff;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * The names of the properties, as sorted arrays so that names can be
+ * looked up from ids, and ids from names, without parsing or creating anything.
+ *
+ * This is the list of known property names, new names are added to the id and name arrays
+ * below, keeping the ids in order. The arrays used to look ids up from names are built from them.
+ */
+final class PSTPropertyNames {
+
+	private PSTPropertyNames() {
+	}
+
+	// property ids (the high 16 bits of a property tag), sorted
+	private static final int[] TAG_IDS = {
+		0x0002, 0x0003, 0x0004, 0x0017, 0x001A, 0x0023, 0x0026, 0x0029,
+		0x002B, 0x002E, 0x0036, 0x0037, 0x0039, 0x003B, 0x003F, 0x0040,
+		0x0041, 0x0042, 0x0043, 0x0044, 0x004D, 0x0052, 0x0057, 0x0058,
+		0x0060, 0x0061, 0x0062, 0x0063, 0x0064, 0x0065, 0x0070, 0x0071,
+		0x0075, 0x0076, 0x0077, 0x0078, 0x007D, 0x0C15, 0x0C17, 0x0C19,
+		0x0C1A, 0x0C1D, 0x0C1E, 0x0C1F, 0x0E01, 0x0E02, 0x0E03, 0x0E04,
+		0x0E06, 0x0E07, 0x0E08, 0x0E0F, 0x0E20, 0x0E23, 0x0E38, 0x0E62,
+		0x0E79, 0x0FF9, 0x0FFE, 0x0FFF, 0x1000, 0x1009, 0x1013, 0x1035,
+		0x1039, 0x1042, 0x1080, 0x1081, 0x1082, 0x1096, 0x10C3, 0x10C4,
+		0x10F2, 0x10F3, 0x10F4, 0x10F5, 0x10F6, 0x3001, 0x3002, 0x3003,
+		0x3007, 0x3008, 0x300B, 0x3701, 0x3702, 0x3703, 0x3704, 0x3705,
+		0x3709, 0x370A, 0x370B, 0x370E, 0x3712, 0x3714, 0x3900, 0x39FE,
+		0x39FF, 0x3A00, 0x3A08, 0x3A20, 0x3A40, 0x3A70, 0x3A71, 0x3FDE,
+		0x3FF1, 0x3FFD, 0x4019, 0x401A, 0x401B, 0x401C, 0x403E, 0x4A08,
+		0x5902, 0x5909, 0x5FDE, 0x5FDF, 0x5FEB, 0x5FEF, 0x5FF2, 0x5FF5,
+		0x5FF6, 0x5FF7, 0x5FFB, 0x5FFD, 0x5FFF, 0x6001, 0x6610, 0x6614,
+		0x6617, 0x6619, 0x6743, 0x6744, 0x67F2, 0x67F3, 0x67F4, 0x7FFA,
+		0x7FFB, 0x7FFC, 0x7FFD, 0x7FFE, 0x7FFF
+	};
+
+	private static final String[] TAG_NAMES = {
+		"PidTagAlternateRecipientAllowed",
+		"PidTagNameidStreamEntry",
+		"PidTagNameidStreamString",
+		"PidTagImportance",
+		"PidTagMessageClass",
+		"PidTagOriginatorDeliveryReportRequested",
+		"PidTagPriority",
+		"PidLidOldWhenStartWhole",
+		"PidTagRecipientReassignmentProhibited",
+		"PidTagOriginalSensitivity",
+		"PidTagSensitivity",
+		"PidTagSubject",
+		"PidTagClientSubmitTime",
+		"PidTagSentRepresentingSearchKey",
+		"PidTagReceivedByEntryId",
+		"PidTagReceivedByName",
+		"PidTagSentRepresentingEntryId",
+		"PidTagSentRepresentingName",
+		"PidTagReceivedRepresentingEntryId",
+		"PidTagReceivedRepresentingName",
+		"PidTagOriginalAuthorName",
+		"PidTagReceivedRepresentingSearchKey",
+		"PidTagMessageToMe",
+		"PidTagMessageCcMe",
+		"PidTagStartDate",
+		"PidTagEndDate",
+		"PidTagOwnerAppointmentId",
+		"PidTagResponseRequested",
+		"PidTagSentRepresentingAddressType",
+		"PidTagSentRepresentingEmailAddress",
+		"PidTagConversationTopic",
+		"PidTagConversationIndex",
+		"PidTagReceivedByAddressType",
+		"PidTagReceivedByEmailAddress",
+		"PidTagReceivedRepresentingAddressType",
+		"PidTagReceivedRepresentingEmailAddress",
+		"PidTagTransportMessageHeaders",
+		"PidTagRecipientType",
+		"PidTagReplyRequested",
+		"PidTagSenderEntryId",
+		"PidTagSenderName",
+		"PidTagSenderSearchKey",
+		"PidTagSenderAddressType",
+		"PidTagSenderEmailAddress",
+		"PidTagDeleteAfterSubmit",
+		"PidTagDisplayBcc",
+		"PidTagDisplayCc",
+		"PidTagDisplayTo",
+		"PidTagMessageDeliveryTime",
+		"PidTagMessageFlags",
+		"PidTagMessageSize",
+		"PidTagResponsibility",
+		"PidTagAttachSize",
+		"PidTagInternetArticleNumber",
+		"PidTagReplFlags",
+		"PidTagUrlCompNameSet",
+		"PidTagTrustSender",
+		"PidTagRecordKey",
+		"PidTagObjectType",
+		"PidTagEntryId",
+		"PidTagBody",
+		"PidTagRtfCompressed",
+		"PidTagBodyHtml",
+		"PidTagInternetMessageId",
+		"PidTagInternetReferences",
+		"PidTagInReplyToId",
+		"PidTagIconIndex",
+		"PidTagLastVerbExecuted",
+		"PidTagLastVerbExecutionTime",
+		"PidTagBlockStatus",
+		"PidTagICalendarStartTime",
+		"PidTagICalendarEndTime",
+		"Unknown_10F2",
+		"PidTagUrlCompName",
+		"PidTagAttributeHidden",
+		"PidTagAttributeSystem",
+		"PidTagAttributeReadOnly",
+		"PidTagDisplayName",
+		"PidTagAddressType",
+		"PidTagEmailAddress",
+		"PidTagCreationTime",
+		"PidTagLastModificationTime",
+		"PidTagSearchKey",
+		"PidTagAttachDataBinary",
+		"PidTagAttachEncoding",
+		"PidTagAttachExtension",
+		"PidTagAttachFilename",
+		"PidTagAttachMethod",
+		"PidTagAttachRendering",
+		"PidTagAttachTag",
+		"PidTagRenderingPosition",
+		"PidTagAttachMimeTag",
+		"PidTagAttachContentId",
+		"PidTagAttachFlags",
+		"PidTagDisplayType",
+		"PidTagPrimarySmtpAddress",
+		"PidTag7BitDisplayName",
+		"PidTagAccount",
+		"PidTagBusinessTelephoneNumber",
+		"PidTagTransmittableDisplayName",
+		"PidTagSendRichInfo",
+		"PidTagUserX509Certificate",
+		"PidTagSendInternetEncoding",
+		"PidTagInternetCodepage",
+		"PidTagMessageLocaleId",
+		"PidTagMessageCodepage",
+		"PidTagSenderFlags",
+		"PidTagSentRepresentingFlags",
+		"PidTagReceivedByFlags",
+		"PidTagReceivedRepresentingFlags",
+		"Unknown_403E",
+		"Unknown_4A08",
+		"PidTagInternetMailOverrideFormat",
+		"PidTagMessageEditorFormat",
+		"PidTagRecipientResourceState",
+		"PidTagRecipientOrder",
+		"Unknown_5FEB",
+		"Unknown_5FEF",
+		"Unknown_5FF2",
+		"Unknown_5FF5",
+		"PidTagRecipientDisplayName",
+		"PidTagRecipientEntryId",
+		"PidTagRecipientTrackStatusTime",
+		"PidTagRecipientFlags",
+		"PidTagRecipientTrackStatus",
+		"PidTagNickname",
+		"Unknown_6610",
+		"Unknown_6614",
+		"Unknown_6617",
+		"PidTagUserEntryId",
+		"Unknown_6743",
+		"Unknown_6744",
+		"PidTagLtpRowId",
+		"PidTagLtpRowVer",
+		"Unknown_67F4",
+		"PidTagAttachmentLinkId",
+		"PidTagExceptionStartTime",
+		"PidTagExceptionEndTime",
+		"PidTagAttachmentFlags",
+		"PidTagAttachmentHidden",
+		"PidTagAttachmentContactPhoto"
+	};
+
+	// long ids (LIDs) of named properties, sorted
+	private static final int[] NAMED_IDS = {
+		0x00000001, 0x00000002, 0x00000003, 0x00000004, 0x00000005, 0x00000006,
+		0x00000007, 0x00000008, 0x00000009, 0x0000000A, 0x0000000B, 0x0000000C,
+		0x0000000D, 0x0000000E, 0x0000000F, 0x00000010, 0x00000011, 0x00000012,
+		0x00000013, 0x00000014, 0x00000015, 0x00000016, 0x00000017, 0x00000018,
+		0x00000019, 0x0000001A, 0x0000001C, 0x0000001D, 0x00000021, 0x00000023,
+		0x00000024, 0x00000026, 0x00000028, 0x00000029, 0x0000002A, 0x000048CC,
+		0x00008101, 0x00008102, 0x00008103, 0x00008110, 0x00008111, 0x00008112,
+		0x00008113, 0x0000811C, 0x00008121, 0x00008123, 0x00008124, 0x00008126,
+		0x00008127, 0x00008129, 0x0000812A, 0x0000812C, 0x00008200, 0x00008201,
+		0x00008202, 0x00008203, 0x00008204, 0x00008205, 0x00008206, 0x00008207,
+		0x00008208, 0x0000820D, 0x0000820E, 0x0000820F, 0x00008210, 0x00008211,
+		0x00008212, 0x00008213, 0x00008214, 0x00008215, 0x00008216, 0x00008217,
+		0x00008218, 0x00008220, 0x00008223, 0x00008224, 0x00008228, 0x00008229,
+		0x0000822B, 0x00008231, 0x00008232, 0x00008233, 0x00008234, 0x00008235,
+		0x00008236, 0x00008238, 0x0000823B, 0x0000823C, 0x0000823E, 0x00008241,
+		0x00008242, 0x00008243, 0x00008244, 0x00008245, 0x00008246, 0x00008247,
+		0x00008248, 0x00008249, 0x00008256, 0x00008257, 0x00008259, 0x0000825A,
+		0x0000825E, 0x0000825F, 0x00008260, 0x00008501, 0x00008502, 0x00008503,
+		0x00008506, 0x0000850E, 0x00008510, 0x00008514, 0x00008516, 0x00008517,
+		0x00008518, 0x00008536, 0x00008537, 0x00008538, 0x00008552, 0x00008554,
+		0x00008560, 0x00008582, 0x000085BF
+	};
+
+	private static final String[] NAMED_NAMES = {
+		"PidLidAttendeeCriticalChange",
+		"PidLidWhere",
+		"PidLidGlobalObjectId",
+		"PidLidIsSilent",
+		"PidLidIsRecurring",
+		"PidLidRequiredAttendees",
+		"PidLidOptionalAttendees",
+		"PidLidResourceAttendees",
+		"PidLidDelegateMail",
+		"PidLidIsException",
+		"PidLidSingleInvite",
+		"PidLidTimeZone",
+		"PidLidStartRecurrenceDate",
+		"PidLidStartRecurrenceTime",
+		"PidLidEndRecurrenceDate",
+		"PidLidEndRecurrenceTime",
+		"PidLidDayInterval",
+		"PidLidWeekInterval",
+		"PidLidMonthInterval",
+		"PidLidYearInterval",
+		"PidLidClientIntent",
+		"Unknown_00000016",
+		"PidLidMonthOfYearMask",
+		"PidLidOldRecurrenceType",
+		"Unknown_00000019",
+		"PidLidOwnerCriticalChange",
+		"PidLidCalendarType",
+		"PidLidAllAttendeesList",
+		"Unknown_00000021",
+		"PidLidCleanGlobalObjectId",
+		"PidLidAppointmentMessageClass",
+		"PidLidMeetingType",
+		"PidLidOldLocation",
+		"PidLidOldWhenStartWhole",
+		"PidLidOldWhenEndWhole",
+		"Unknown_000048CC",
+		"PidLidTaskStatus",
+		"PidLidPercentComplete",
+		"PidLidTeamTask",
+		"PidLidTaskActualEffort",
+		"PidLidTaskEstimatedEffort",
+		"PidLidTaskVersion",
+		"PidLidTaskState",
+		"PidLidTaskComplete",
+		"PidLidTaskAssigner",
+		"PidLidTaskOrdinal",
+		"PidLidTaskNoCompute",
+		"PidLidTaskFRecurring",
+		"PidLidTaskRole",
+		"PidLidTaskOwnership",
+		"PidLidTaskAcceptanceState",
+		"PidLidTaskFFixOffline",
+		"PidLidSendMeetingAsIcal",
+		"PidLidAppointmentSequence",
+		"PidLidAppointmentSequenceTime",
+		"PidLidAppointmentLastSequence",
+		"PidLidChangeHighlight",
+		"PidLidBusyStatus",
+		"PidLidFExceptionalBody",
+		"PidLidAppointmentAuxiliaryFlags",
+		"PidLidLocation",
+		"PidLidAppointmentStartWhole",
+		"PidLidAppointmentEndWhole",
+		"PidLidAppointmentStartTime",
+		"PidLidAppointmentEndTime",
+		"PidLidAppointmentEndDate",
+		"PidLidAppointmentStartDate",
+		"PidLidAppointmentDuration",
+		"PidLidAppointmentColor",
+		"PidLidAppointmentSubType",
+		"PidLidAppointmentRecur",
+		"PidLidAppointmentStateFlags",
+		"PidLidResponseStatus",
+		"PidLidAppointmentReplyTime",
+		"PidLidRecurring",
+		"PidLidIntendedBusyStatus",
+		"PidLidExceptionReplaceTime",
+		"PidLidFInvited",
+		"PidLidFExceptionalAttendees",
+		"PidLidRecurrenceType",
+		"PidLidRecurrencePattern",
+		"PidLidTimeZoneStruct",
+		"PidLidTimeZoneDescription",
+		"PidLidClipStart",
+		"PidLidClipEnd",
+		"PidLidAllAttendeesString",
+		"PidLidToAttendeesString",
+		"PidLidCcAttendeesString",
+		"PidLidTrustRecipientHighlights",
+		"PidLidConferencingType",
+		"PidLidDirectory",
+		"PidLidOrganizerAlias",
+		"PidLidAutoStartCheck",
+		"PidLidAutoStartWhen",
+		"PidLidAllowExternalCheck",
+		"PidLidCollaborateDoc",
+		"PidLidNetShowUrl",
+		"PidLidOnlinePassword",
+		"PidLidAppointmentProposedDuration",
+		"PidLidAppointmentCounterProposal",
+		"PidLidAppointmentProposalNumber",
+		"PidLidAppointmentNotAllowPropose",
+		"PidLidAppointmentTimeZoneDefinitionStartDisplay",
+		"PidLidAppointmentTimeZoneDefinitionEndDisplay",
+		"PidLidAppointmentTimeZoneDefinitionRecur",
+		"PidLidReminderDelta",
+		"PidLidReminderTime",
+		"PidLidReminderSet",
+		"PidLidPrivate",
+		"PidLidAgingDontAgeMe",
+		"PidLidSideEffects",
+		"PidLidSmartNoAttach",
+		"PidLidCommonStart",
+		"PidLidCommonEnd",
+		"PidLidTaskMode",
+		"PidLidNonSendableTo",
+		"PidLidNonSendableCc",
+		"PidLidNonSendableBcc",
+		"PidLidCurrentVersion",
+		"PidLidCurrentVersionName",
+		"PidLidReminderSignalTime",
+		"PidLidUseTnef",
+		"PidLidValidFlagStringProof"
+	};
+
+	// the names again in order, with the id of each, to look ids up from names
+	private static final String[] TAG_NAMES_SORTED = new String[TAG_NAMES.length];
+	private static final int[] TAG_IDS_BY_NAME = new int[TAG_IDS.length];
+	private static final String[] NAMED_NAMES_SORTED = new String[NAMED_NAMES.length];
+	private static final int[] NAMED_IDS_BY_NAME = new int[NAMED_IDS.length];
+
+	static {
+		sortOnName(TAG_IDS, TAG_NAMES, TAG_IDS_BY_NAME, TAG_NAMES_SORTED);
+		sortOnName(NAMED_IDS, NAMED_NAMES, NAMED_IDS_BY_NAME, NAMED_NAMES_SORTED);
+	}
+
+	private static void sortOnName(int[] ids, final String[] names, int[] idsByName, String[] sortedNames) {
+		Integer[] order = new Integer[names.length];
+		for (int x = 0; x < order.length; x++) {
+			order[x] = x;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return names[a].compareTo(names[b]);
+			}
+		});
+		for (int x = 0; x < order.length; x++) {
+			idsByName[x] = ids[order[x]];
+			sortedNames[x] = names[order[x]];
+		}
+	}
+
+	/**
+	 * get the name of a property
+	 * @param propertyId the property id, or the long id (LID) of a named property
+	 * @param bNamed true for a long id
+	 * @return the name, or null if it isn't known
+	 */
+	static String getName(int propertyId, boolean bNamed) {
+		if (bNamed) {
+			int index = indexOf(NAMED_IDS, propertyId);
+			return index == -1 ? null : NAMED_NAMES[index];
+		}
+		int index = indexOf(TAG_IDS, propertyId);
+		return index == -1 ? null : TAG_NAMES[index];
+	}
+
+	/**
+	 * get the id of a property from its name
+	 * @return the property id, -1 if the name isn't known
+	 */
+	static int getPropertyId(String name) {
+		int index = indexOf(TAG_NAMES_SORTED, name);
+		return index == -1 ? -1 : TAG_IDS_BY_NAME[index];
+	}
+
+	/**
+	 * get the long id (LID) of a named property from its name
+	 * @return the long id, -1 if the name isn't known
+	 */
+	static int getNamedPropertyId(String name) {
+		int index = indexOf(NAMED_NAMES_SORTED, name);
+		return index == -1 ? -1 : NAMED_IDS_BY_NAME[index];
+	}
+
+	private static int indexOf(int[] ids, int id) {
+		int low = 0;
+		int high = ids.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (ids[mid] < id) {
+				low = mid + 1;
+			} else if (ids[mid] > id) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	private static int indexOf(String[] names, String name) {
+		if (name == null) {
+			return -1;
+		}
+		int low = 0;
+		int high = names.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int compare = names[mid].compareTo(name);
+			if (compare < 0) {
+				low = mid + 1;
+			} else if (compare > 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,192 @@
+/**
+ * Copyright 2010 Richard Johnson & Orin Eman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ---
+ *
+ * This file is part of java-libpst.
+ *
+ * java-libpst is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * java-libpst is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-libpst.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.pff;
+
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * The values of a set of properties, read from an item in one pass by PSTObject.getProperties().
+ * Values are looked up by their position in the array of property ids that was asked for.
+ * A holder can be passed back to getProperties() to be filled again for the next item,
+ * its arrays are only reallocated when more properties are asked for.
+ */
+public class PSTPropertyValues {
+
+	private int[] propertyIds = new int[0];
+	private int[] valueTypes = new int[0];
+	// values of 8 bytes or less, numbers, booleans and the raw bits of doubles
+	private long[] values = new long[0];
+	// strings, binary values and dates
+	private Object[] objects = new Object[0];
+	private int count = 0;
+
+	public PSTPropertyValues() {
+	}
+
+	/**
+	 * clear the holder for a new set of properties
+	 */
+	void reset(int[] propertyIds) {
+		this.count = propertyIds.length;
+		if (this.valueTypes.length < this.count) {
+			this.valueTypes = new int[this.count];
+			this.values = new long[this.count];
+			this.objects = new Object[this.count];
+		} else {
+			Arrays.fill(this.objects, null);
+		}
+		Arrays.fill(this.valueTypes, 0, this.count, -1);
+		Arrays.fill(this.values, 0, this.count, 0);
+		this.propertyIds = propertyIds;
+	}
+
+	void set(int position, int valueType, long value, Object object) {
+		this.valueTypes[position] = valueType;
+		this.values[position] = value;
+		this.objects[position] = object;
+	}
+
+	/**
+	 * @return the number of properties that were asked for
+	 */
+	public int size() {
+		return this.count;
+	}
+
+	public int getPropertyId(int position) {
+		return this.propertyIds[position];
+	}
+
+	/**
+	 * find the position of a property in the ids that were asked for
+	 * @return the position, or -1 if it wasn't asked for
+	 */
+	public int indexOf(int propertyId) {
+		for (int x = 0; x < this.count; x++) {
+			if (this.propertyIds[x] == propertyId) {
+				return x;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return true if the item has the property
+	 */
+	public boolean isPresent(int position) {
+		return this.valueTypes[position] != -1;
+	}
+
+	/**
+	 * @return the type of the value, -1 if the item doesn't have the property
+	 */
+	public int getValueType(int position) {
+		return this.valueTypes[position];
+	}
+
+	/**
+	 * get an integer, boolean or 16 bit value
+	 * @return the value, or defaultValue if it isn't present
+	 */
+	public int getInt(int position, int defaultValue) {
+		if (!this.isPresent(position)) {
+			return defaultValue;
+		}
+		return (int)this.values[position];
+	}
+
+	/**
+	 * get a 64 bit integer, or an integer widened.
+	 * Currency (PT_CURRENCY) values are returned as stored, in units of 1/10000.
+	 * @return the value, or defaultValue if it isn't present or isn't an integer
+	 */
+	public long getLong(int position, long defaultValue) {
+		switch (this.valueTypes[position]) {
+		case 0x0002:
+		case 0x0003:
+		case 0x0006:
+		case 0x0014:
+			return this.values[position];
+		}
+		return defaultValue;
+	}
+
+	public boolean getBoolean(int position, boolean defaultValue) {
+		if (!this.isPresent(position)) {
+			return defaultValue;
+		}
+		return this.values[position] != 0;
+	}
+
+	/**
+	 * @return the value, or defaultValue if it isn't present or isn't a double
+	 */
+	public double getDouble(int position, double defaultValue) {
+		if (this.valueTypes[position] != 0x0005) {
+			return defaultValue;
+		}
+		return Double.longBitsToDouble(this.values[position]);
+	}
+
+	/**
+	 * @return the date, or null if it isn't present or isn't a date
+	 */
+	public Date getDate(int position) {
+		if (this.valueTypes[position] != 0x0040) {
+			return null;
+		}
+		return (Date)this.objects[position];
+	}
+
+	/**
+	 * @return the string, or an empty string if it isn't present or isn't a string
+	 */
+	public String getString(int position) {
+		if (this.objects[position] instanceof String) {
+			return (String)this.objects[position];
+		}
+		return "";
+	}
+
+	/**
+	 * @return the binary value, or null if it isn't present or isn't binary
+	 */
+	public byte[] getBinary(int position) {
+		if (this.valueTypes[position] != 0x0102) {
+			return null;
+		}
+		return (byte[])this.objects[position];
+	}
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright 2010 Richard Johnson & Orin Eman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ---
+ *
+ * This file is part of java-libpst.
+ *
+ * java-libpst is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * java-libpst is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-libpst.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.pff;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * PSTFileContent read through a plain RandomAccessFile.
+ * This is the default used when a PSTFile is opened by name.
+ * Reads use positional FileChannel reads, there is no shared file pointer,
+ * so any number of threads can read through the same instance at once.
+ * Note that interrupting a thread blocked in a read closes the channel for everyone.
+ */
+public class PSTRandomAccessFileContent extends PSTFileContent {
+
+	private RandomAccessFile file;
+	private FileChannel channel;
+
+	public PSTRandomAccessFileContent(File fileName)
+		throws FileNotFoundException
+	{
+		this(new RandomAccessFile(fileName, "r"));
+	}
+
+	public PSTRandomAccessFileContent(RandomAccessFile file) {
+		this.file = file;
+		this.channel = file.getChannel();
+	}
+
+	@Override
+	public int read(long position, byte[] target, int offset, int length)
+		throws IOException
+	{
+		return this.read(position, ByteBuffer.wrap(target, offset, length));
+	}
+
+	@Override
+	public int read(long position, ByteBuffer target)
+		throws IOException
+	{
+		boolean wanted = target.hasRemaining();
+		int totalRead = 0;
+		while (target.hasRemaining()) {
+			int read = this.channel.read(target, position + totalRead);
+			if (read < 0) {
+				break;
+			}
+			totalRead += read;
+		}
+		if (totalRead == 0 && wanted) {
+			return -1;
+		}
+		return totalRead;
+	}
+
+	@Override
+	public long length()
+		throws IOException
+	{
+		return this.channel.size();
+	}
+
+	@Override
+	public void close()
+		throws IOException
+	{
+		this.file.close();
+	}
+
+	/**
+	 * get the file handle being read from.
+	 * Seeking it has no effect on reads done through this class.
+	 */
+	public RandomAccessFile getFile() {
+		return this.file;
+	}
+}
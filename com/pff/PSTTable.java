@@ -34,7 +34,10 @@
 package com.pff;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 
 
 /**
@@ -59,13 +62,16 @@ class PSTTable {
 	protected int numberOfIndexLevels = 0;
 
 	private PSTNodeInputStream in;
+
+	// HN page maps, one per heap block, read the first time the block is used.
+	// each holds the absolute offsets of the block's allocations, so
+	// allocation n runs from map[n] to map[n+1]
+	private int[][] heapPageMaps = null;
 	
 	//private int[][]	rgbiAlloc = null;
 	//private byte[]	data = null;
 	private HashMap<Integer, PSTDescriptorItem> subNodeDescriptorItems = null;
 	
-	protected String description = "";
-	
 	protected PSTTable(PSTNodeInputStream in, HashMap<Integer, PSTDescriptorItem> subNodeDescriptorItems)
 		throws PSTException, IOException
 	{
@@ -73,6 +79,7 @@ class PSTTable {
 		this.in = in;
 
 		arrayBlocks = in.getBlockOffsets();
+		heapPageMaps = new int[arrayBlocks.length+1][];
 
 		// the next two bytes should be the table type (bSig)
 		// 0xEC is HN (Heap-on-Node)
@@ -115,7 +122,7 @@ class PSTTable {
 		}
 		
 
-		hidUserRoot = (int)in.seekAndReadLong(4, 4);		// hidUserRoot
+		hidUserRoot = (int)in.readU32(4);		// hidUserRoot
 /*
 		System.out.printf("Table %s: hidUserRoot 0x%08X\n", tableType, hidUserRoot);
 /**/
@@ -123,11 +130,8 @@ class PSTTable {
 
 		// all tables should have a BTHHEADER at hnid == 0x20
 		NodeInfo headerNodeInfo = getNodeInfo(0x20);
-		headerNodeInfo.in.seek(headerNodeInfo.startOffset);
-		int headerByte = headerNodeInfo.in.read() &0xFF;
+		int headerByte = headerNodeInfo.readU8(0);
 		if ( headerByte != 0xb5 ) {
-			headerNodeInfo.in.seek(headerNodeInfo.startOffset);
-			headerByte = headerNodeInfo.in.read() &0xFF;
 			headerNodeInfo.in.seek(headerNodeInfo.startOffset);
 			byte[] tmp = new byte[1024];
 			headerNodeInfo.in.read(tmp);
@@ -136,22 +140,29 @@ class PSTTable {
 			throw new PSTException("Unable to parse table, can't find BTHHEADER header information: "+headerByte);
 		}
 		
-		sizeOfItemKey = (int)headerNodeInfo.in.read() & 0xFF;		// Size of key in key table
-		sizeOfItemValue = (int)headerNodeInfo.in.read() & 0xFF;	// Size of value in key table
+		sizeOfItemKey = headerNodeInfo.readU8(1);		// Size of key in key table
+		sizeOfItemValue = headerNodeInfo.readU8(2);	// Size of value in key table
 
-		numberOfIndexLevels = (int)headerNodeInfo.in.read() & 0xFF;
+		numberOfIndexLevels = headerNodeInfo.readU8(3);
 		if ( numberOfIndexLevels != 0 ) {
 			// System.out.println(this.tableType);
 			// System.out.printf("Table with %d index levels\n", numberOfIndexLevels);
 		}
 		//hidRoot = (int)PSTObject.convertLittleEndianBytesToLong(nodeInfo, 4, 8);	// hidRoot
-		hidRoot = (int)headerNodeInfo.seekAndReadLong(4, 4);
+		hidRoot = (int)headerNodeInfo.readU32(4);
 		//System.out.println(hidRoot);
 		//System.exit(0);
 /*
 		System.out.printf("Table %s: hidRoot 0x%08X\n", tableType, hidRoot);
 /**/		
-		description += "Table ("+tableType+")\n"+
+	}
+
+	/**
+	 * describe the table, this is only built when asked for
+	 */
+	@Override
+	public String toString() {
+		return "Table ("+tableType+")\n"+
 			"hidUserRoot: "+hidUserRoot+" - 0x"+Long.toHexString(hidUserRoot)+"\n"+
 			"Size Of Keys: "+sizeOfItemKey+" - 0x"+Long.toHexString(sizeOfItemKey)+"\n"+
 			"Size Of Values: "+sizeOfItemValue+" - 0x"+Long.toHexString(sizeOfItemValue)+"\n"+
@@ -159,10 +170,153 @@ class PSTTable {
 	}
 
 
+	/**
+	 * Look a key up in the BTH, binary searching each level of the index on the way down.
+	 * Only the index nodes on the path to the key are read.
+	 * @param key
+	 * @return the data of the record with the key, or -1 if the key isn't in the table
+	 * @throws PSTException
+	 * @throws IOException
+	 */
+	protected long find(int key)
+		throws PSTException, IOException
+	{
+		long wantedKey = key & 0xFFFFFFFFL;
+		int hid = hidRoot;
+		for (int level = numberOfIndexLevels; level >= 0 && hid != 0; level--) {
+			NodeInfo keyTableInfo = getNodeInfo(hid);
+			// index levels point at the next level down with a hid
+			int sizeOfRecordValue = (level > 0) ? 4 : sizeOfItemValue;
+			int sizeOfRecord = sizeOfItemKey + sizeOfRecordValue;
+
+			// find the last record with a key not greater than the one we want
+			int low = 0;
+			int high = keyTableInfo.length() / sizeOfRecord - 1;
+			int found = -1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				long midKey = keyTableInfo.readLittleEndian(mid * sizeOfRecord, sizeOfItemKey);
+				if (midKey <= wantedKey) {
+					found = mid;
+					if (midKey == wantedKey) {
+						break;
+					}
+					low = mid + 1;
+				} else {
+					high = mid - 1;
+				}
+			}
+			if (found == -1) {
+				return -1;
+			}
+
+			int offset = found * sizeOfRecord;
+			if (level == 0) {
+				if (keyTableInfo.readLittleEndian(offset, sizeOfItemKey) != wantedKey) {
+					return -1;
+				}
+				return keyTableInfo.readLittleEndian(offset + sizeOfItemKey, sizeOfRecordValue);
+			}
+			hid = (int)keyTableInfo.readU32(offset + sizeOfItemKey);
+		}
+		return -1;
+	}
+
+	/**
+	 * Look up a set of keys in one pass through the leaves of the BTH.
+	 * @param keys the keys to look for, in ascending order
+	 * @return the data of the record for each key, -1 where the key isn't in the table
+	 * @throws PSTException
+	 * @throws IOException
+	 */
+	protected long[] find(int[] keys)
+		throws PSTException, IOException
+	{
+		long[] values = new long[keys.length];
+		Arrays.fill(values, -1);
+
+		for (int x = 1; x < keys.length; x++) {
+			if ((keys[x] & 0xFFFFFFFFL) < (keys[x-1] & 0xFFFFFFFFL)) {
+				// not sorted, look them up one at a time
+				for (x = 0; x < keys.length; x++) {
+					values[x] = find(keys[x]);
+				}
+				return values;
+			}
+		}
+
+		int sizeOfRecord = sizeOfItemKey + sizeOfItemValue;
+		int key = 0;
+		for (NodeInfo keyTableInfo : getKeyTableNodes()) {
+			int low = 0;
+			int numberOfRecords = keyTableInfo.length() / sizeOfRecord;
+			while (key < keys.length && low < numberOfRecords) {
+				long wantedKey = keys[key] & 0xFFFFFFFFL;
+				int high = numberOfRecords - 1;
+				while (low <= high) {
+					int mid = (low + high) >>> 1;
+					long midKey = keyTableInfo.readLittleEndian(mid * sizeOfRecord, sizeOfItemKey);
+					if (midKey < wantedKey) {
+						low = mid + 1;
+					} else if (midKey > wantedKey) {
+						high = mid - 1;
+					} else {
+						values[key] = keyTableInfo.readLittleEndian(mid * sizeOfRecord + sizeOfItemKey, sizeOfItemValue);
+						// stay on the record, the same key may be asked for again
+						low = mid;
+						break;
+					}
+				}
+				if (values[key] == -1 && low >= numberOfRecords) {
+					// past the end of this leaf, it may be in the next one
+					break;
+				}
+				key++;
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Get the leaf nodes of the BTH in key order, walking down through any index levels.
+	 * @return the nodes holding the key/data records
+	 * @throws PSTException
+	 * @throws IOException
+	 */
+	protected List<NodeInfo> getKeyTableNodes()
+		throws PSTException, IOException
+	{
+		List<NodeInfo> keyTableNodes = new ArrayList<NodeInfo>();
+		addKeyTableNodes(hidRoot, numberOfIndexLevels, keyTableNodes);
+		return keyTableNodes;
+	}
+
+	private void addKeyTableNodes(int hid, int level, List<NodeInfo> keyTableNodes)
+		throws PSTException, IOException
+	{
+		NodeInfo nodeInfo = getNodeInfo(hid);
+		if (level == 0 || hid == 0) {
+			keyTableNodes.add(nodeInfo);
+			return;
+		}
+		int sizeOfRecord = sizeOfItemKey + 4;
+		int numberOfRecords = nodeInfo.length() / sizeOfRecord;
+		for (int x = 0; x < numberOfRecords; x++) {
+			addKeyTableNodes((int)nodeInfo.readU32(x * sizeOfRecord + sizeOfItemKey), level - 1, keyTableNodes);
+		}
+	}
+
 	protected void releaseRawData() {
 		subNodeDescriptorItems = null;
 	}
 
+	/**
+	 * @return true if the hnid is a subnode that this table can still read
+	 */
+	protected boolean hasSubNode(int hnid) {
+		return subNodeDescriptorItems != null && subNodeDescriptorItems.containsKey(hnid);
+	}
+
 	
 	/**
 	 * get the number of items stored in this table.
@@ -195,6 +349,31 @@ class PSTTable {
 		{
 			return this.in.seekAndReadLong(startOffset+offset, length);
 		}
+
+		// reads relative to the start of the node, they don't move the stream
+		int readU8(int offset)
+				throws IOException, PSTException
+		{
+			return this.in.readU8(startOffset+offset);
+		}
+
+		int readU16(int offset)
+				throws IOException, PSTException
+		{
+			return this.in.readU16(startOffset+offset);
+		}
+
+		long readU32(int offset)
+				throws IOException, PSTException
+		{
+			return this.in.readU32(startOffset+offset);
+		}
+
+		long readLittleEndian(int offset, int length)
+				throws IOException, PSTException
+		{
+			return this.in.readLittleEndian(startOffset+offset, length);
+		}
 	}
 	
 	protected NodeInfo getNodeInfo(int hnid)
@@ -243,23 +422,48 @@ class PSTTable {
 
 		// A normal node in a local heap
 		int index = (hnid & 0xFFFF) >> 5;
+		int[] pageMap = getHeapPageMap(whichBlock);
+		if ( index >= pageMap.length-1 ) {
+			throw new PSTException(String.format("getNodeInfo: node index doesn't exist! nid = 0x%08X\n", hnid));
+			//return null;
+		}
+
+		NodeInfo out = new NodeInfo(pageMap[index], pageMap[index+1], in);
+		return out;
+	}
+
+	/**
+	 * Get the HN page map of a heap block, reading it the first time it's asked for.
+	 * Entry 0 is the cFree word, the allocation offsets (rgibAlloc) follow it.
+	 */
+	private int[] getHeapPageMap(int whichBlock)
+		throws PSTException, IOException
+	{
+		int[] pageMap = heapPageMaps[whichBlock];
+		if (pageMap != null) {
+			return pageMap;
+		}
+
 		int blockOffset = 0;
 		if (whichBlock > 0) {
 			blockOffset = arrayBlocks[whichBlock-1].intValue();
 		}
 		// Get offset of HN page map
-		int iHeapNodePageMap = (int)in.seekAndReadLong(blockOffset, 2) + blockOffset;
-		int cAlloc = (int)in.seekAndReadLong(iHeapNodePageMap, 2);
-		if ( index >= cAlloc+1 ) {
-			throw new PSTException(String.format("getNodeInfo: node index doesn't exist! nid = 0x%08X\n", hnid));
-			//return null;
+		int iHeapNodePageMap = in.readU16(blockOffset) + blockOffset;
+		int cAlloc = in.readU16(iHeapNodePageMap);
+
+		// cFree and the cAlloc+1 allocation offsets in one read
+		byte[] rawMap = new byte[2 * (cAlloc+2)];
+		if (in.readAt(iHeapNodePageMap + 2, rawMap, 0, rawMap.length) != rawMap.length) {
+			throw new PSTException(String.format("getNodeInfo: truncated page map in block %d\n", whichBlock));
+		}
+		pageMap = new int[cAlloc+2];
+		for (int x = 0; x < pageMap.length; x++) {
+			pageMap[x] = ((rawMap[2*x] & 0xff) | (rawMap[2*x+1] & 0xff) << 8) + blockOffset;
 		}
-		iHeapNodePageMap += (2 * index)+2;
-		int start = (int)in.seekAndReadLong(iHeapNodePageMap, 2) + blockOffset;
-		int end = (int)in.seekAndReadLong(iHeapNodePageMap + 2, 2) + blockOffset;
 
-		NodeInfo out = new NodeInfo(start, end, in);
-		return out;
+		heapPageMaps[whichBlock] = pageMap;
+		return pageMap;
 	}
 
 }
@@ -47,6 +47,8 @@ import java.io.*;
 class PSTTable7C extends PSTTable {
 
 	private final int BLOCK_SIZE = 8176;
+	private final int ANSI_BLOCK_SIZE = 8180;
+	private int rowBlockSize = BLOCK_SIZE;
 
 	private List<HashMap<Integer, PSTTable7CItem>> items = null;
 	private int numberOfDataSets = 0;
@@ -54,15 +56,37 @@ class PSTTable7C extends PSTTable {
 	private int TCI_bm = 0;
 	private NodeInfo rowNodeInfo = null;
 	private int TCI_1b = 0;
-	private int overrideCol = -1;
+	// the columns being read, in column order
+	private int[] columnsRead = new int[0];
+	private int hidRowIndex = 0;
+	private int hnidRows = 0;
+
+	// all of the rows, once they have been read
+	private RowStore rows = null;
 	
 	protected PSTTable7C(PSTNodeInputStream in, HashMap<Integer, PSTDescriptorItem> subNodeDescriptorItems)
 		throws PSTException, java.io.IOException
 	{
-		this(in, subNodeDescriptorItems, -1);
+		this(in, subNodeDescriptorItems, (int[])null);
 	}
 	protected PSTTable7C(PSTNodeInputStream in, HashMap<Integer, PSTDescriptorItem> subNodeDescriptorItems, int entityToExtract)
 		throws PSTException, java.io.IOException
+	{
+		this(in, subNodeDescriptorItems, (entityToExtract == -1) ? null : new int[] { entityToExtract });
+	}
+
+	/**
+	 * Open a table, reading only some of its columns.
+	 * Columns that aren't asked for are never decoded, and their values are never looked up in the heap.
+	 * The row id (0x67F2) is always available.
+	 * @param in
+	 * @param subNodeDescriptorItems
+	 * @param propertiesToRead the property ids (or full property tags) of the columns to read, null for all of them
+	 * @throws PSTException
+	 * @throws java.io.IOException
+	 */
+	protected PSTTable7C(PSTNodeInputStream in, HashMap<Integer, PSTDescriptorItem> subNodeDescriptorItems, int[] propertiesToRead)
+		throws PSTException, java.io.IOException
 	{
 		super(in, subNodeDescriptorItems);
 
@@ -79,21 +103,21 @@ class PSTTable7C extends PSTTable {
 		
 		// get the TCINFO header information
 		//int cCols = (int)PSTObject.convertLittleEndianBytesToLong(tcHeaderNode, offset+1, offset+2);
-		cCols = (int)tcHeaderNode.seekAndReadLong(offset+1, 1);
+		cCols = tcHeaderNode.readU8(offset+1);
 		@SuppressWarnings("unused")
 		//int TCI_4b = (int)PSTObject.convertLittleEndianBytesToLong(tcHeaderNode, offset+2, offset+4);
-		int TCI_4b = (int)tcHeaderNode.seekAndReadLong(offset+2, 2);
+		int TCI_4b = tcHeaderNode.readU16(offset+2);
 		@SuppressWarnings("unused")
 		//int TCI_2b = (int)PSTObject.convertLittleEndianBytesToLong(tcHeaderNode, offset+4, offset+6);
-		int TCI_2b = (int)tcHeaderNode.seekAndReadLong(offset+4, 2);
+		int TCI_2b = tcHeaderNode.readU16(offset+4);
 		//int TCI_1b = (int)PSTObject.convertLittleEndianBytesToLong(tcHeaderNode, offset+6, offset+8);
-		TCI_1b = (int)tcHeaderNode.seekAndReadLong(offset+6, 2);
+		TCI_1b = tcHeaderNode.readU16(offset+6);
 		//int TCI_bm = (int)PSTObject.convertLittleEndianBytesToLong(tcHeaderNode, offset+8, offset+10);
-		TCI_bm = (int)tcHeaderNode.seekAndReadLong(offset+8, 2);
+		TCI_bm = tcHeaderNode.readU16(offset+8);
 		//int hidRowIndex = (int)PSTObject.convertLittleEndianBytesToLong(tcHeaderNode, offset+10, offset+14);
-		int hidRowIndex = (int)tcHeaderNode.seekAndReadLong(offset+10, 4);
+		hidRowIndex = (int)tcHeaderNode.readU32(offset+10);
 		//int hnidRows = (int)PSTObject.convertLittleEndianBytesToLong(tcHeaderNode, offset+14, offset+18);// was 18
-		int hnidRows = (int)tcHeaderNode.seekAndReadLong(offset+14, 4);
+		hnidRows = (int)tcHeaderNode.readU32(offset+14);
 		// 18..22 hidIndex - deprecated
 
 		// 22... column descriptors
@@ -105,49 +129,51 @@ class PSTTable7C extends PSTTable {
 				//columnDescriptors[col] = new ColumnDescriptor(tcHeaderNode, offset);
 				columnDescriptors[col] = new ColumnDescriptor(tcHeaderNode, offset);
 				//System.out.println("iBit: "+col+" " +columnDescriptors[col].iBit);
-				if (columnDescriptors[col].id == entityToExtract) {
-					overrideCol = col;
-				}
 				offset += 8;
 			}
 		}
 
-		// if we are asking for a specific column, only get that!
-		if (overrideCol > -1) {
-			cCols = overrideCol +1;
+		// if we are asking for specific columns, only get those!
+		columnsRead = new int[cCols];
+		int numberOfColumnsRead = 0;
+		for (int col = 0; col < cCols; ++col) {
+			if (propertiesToRead == null || isRequested(propertiesToRead, columnDescriptors[col].id)) {
+				columnsRead[numberOfColumnsRead++] = col;
+			}
+		}
+		if (numberOfColumnsRead < cCols) {
+			columnsRead = Arrays.copyOf(columnsRead, numberOfColumnsRead);
 		}
 
-		// Read the key table
+		// Count the keys in the row index, the records themselves are only read by getRowIndex()
 /*		System.out.printf("Key table:\n");	/**/
-		keyMap = new HashMap<Integer, Integer>();
 		//byte[] keyTableInfo = getNodeInfo(hidRoot);
-		NodeInfo keyTableInfo = getNodeInfo(hidRoot);
-		numberOfKeys = keyTableInfo.length() / (sizeOfItemKey+sizeOfItemValue);
-		offset = 0;
-		for (int x = 0; x < numberOfKeys; x++) {
-			int Context = (int)keyTableInfo.seekAndReadLong(offset, sizeOfItemKey);
-			offset += sizeOfItemKey;
-			int RowIndex = (int)keyTableInfo.seekAndReadLong(offset, sizeOfItemValue);
-			offset += sizeOfItemValue;
-			keyMap.put(Context, RowIndex);
+		numberOfKeys = 0;
+		for (NodeInfo keyTableInfo : getKeyTableNodes()) {
+			numberOfKeys += keyTableInfo.length() / (sizeOfItemKey+sizeOfItemValue);
 		}
 		
 		// Read the Row Matrix
 		rowNodeInfo = getNodeInfo(hnidRows);
 		//numberOfDataSets = (rowNodeInfo.endOffset - rowNodeInfo.startOffset) / TCI_bm;
 
-		description += 
-			"Number of keys: "+numberOfKeys+"\n"+
-			"Number of columns: "+cCols+"\n"+
-			"Row Size: "+TCI_bm+"\n"+
-			"hidRowIndex: "+hidRowIndex+"\n"+
-			"hnidRows: "+hnidRows+"\n";
+		// rows are packed into the blocks of the row matrix, which are a little bigger in ANSI files
+		if (in.getPSTFile().getPSTFileType() == PSTFile.PST_TYPE_ANSI) {
+			rowBlockSize = ANSI_BLOCK_SIZE;
+		}
+		int numberOfBlocks = rowNodeInfo.length() / rowBlockSize;
+		int numberOfRowsPerBlock = rowBlockSize / TCI_bm;
+		numberOfDataSets = (numberOfBlocks * numberOfRowsPerBlock) + ((rowNodeInfo.length() % rowBlockSize) / TCI_bm);
+	}
 
-		int numberOfBlocks = rowNodeInfo.length() / BLOCK_SIZE;
-		int numberOfRowsPerBlock = BLOCK_SIZE / TCI_bm;
-		@SuppressWarnings("unused")
-		int blockPadding = BLOCK_SIZE - (numberOfRowsPerBlock * TCI_bm);
-		numberOfDataSets = (numberOfBlocks * numberOfRowsPerBlock) + ((rowNodeInfo.length() % BLOCK_SIZE) / TCI_bm);
+	private static boolean isRequested(int[] propertiesToRead, int propertyId) {
+		for (int property : propertiesToRead) {
+			// allow for full property tags, with the type in the low bits
+			if (property == propertyId || (property >>> 16) == propertyId) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 	/**
@@ -168,203 +194,538 @@ class PSTTable7C extends PSTTable {
 	{
 		List<HashMap<Integer, PSTTable7CItem>> itemList = new ArrayList<HashMap<Integer, PSTTable7CItem>>();
 
-		// okay, work out the number of records we have
-		int numberOfBlocks = rowNodeInfo.length() / BLOCK_SIZE;
-		int numberOfRowsPerBlock = BLOCK_SIZE / TCI_bm;
-		int blockPadding = BLOCK_SIZE - (numberOfRowsPerBlock * TCI_bm);
-		numberOfDataSets = (numberOfBlocks * numberOfRowsPerBlock) + ((rowNodeInfo.length() % BLOCK_SIZE) / TCI_bm);
-
 		if (startAtRecord == -1) {
+			// the whole table
 			numberOfRecordsToReturn = numberOfDataSets;
 			startAtRecord = 0;
+			this.loadRows();
 		}
 
-		// repeat the reading process for every dataset
-		int currentValueArrayStart =
-				((startAtRecord / numberOfRowsPerBlock) * BLOCK_SIZE) +
-				((startAtRecord % numberOfRowsPerBlock) * TCI_bm);
-
 		if (numberOfRecordsToReturn > this.getRowCount() - startAtRecord) {
 			numberOfRecordsToReturn = this.getRowCount() - startAtRecord;
 		}
 
-		int dataSetNumber = 0;
-		//while ( currentValueArrayStart + ((cCols+7)/8) + TCI_1b <= rowNodeInfo.length())
-		for (int rowCounter = 0; rowCounter < numberOfRecordsToReturn; rowCounter++)
-		{
-			HashMap<Integer, PSTTable7CItem> currentItem = new HashMap<Integer, PSTTable7CItem>();
-			// add on some padding for block boundries?
-			if (rowNodeInfo.in.getPSTFile().getPSTFileType() == PSTFile.PST_TYPE_ANSI) {
-				if (currentValueArrayStart >= BLOCK_SIZE) {
-					currentValueArrayStart = currentValueArrayStart + (4) * (currentValueArrayStart / BLOCK_SIZE);
-				}
-				if (rowNodeInfo.startOffset+ currentValueArrayStart + TCI_1b > rowNodeInfo.in.length()) {
-					continue;
+		if (this.rows != null) {
+			for (int rowCounter = 0; rowCounter < numberOfRecordsToReturn; rowCounter++)
+			{
+				itemList.add(this.getItemMap(this.rows, startAtRecord + rowCounter));
+			}
+		} else {
+			// only decode the rows asked for
+			RowCursor cursor = new RowCursor();
+			for (int rowCounter = 0; rowCounter < numberOfRecordsToReturn; rowCounter++)
+			{
+				cursor.moveTo(startAtRecord + rowCounter);
+				itemList.add(this.getItemMap(cursor.store, cursor.slot));
+			}
+		}
+
+		return itemList;
+	}
+
+	/**
+	 * Find a row from its row id (the NID of the object for most tables) using the row index,
+	 * the index is searched in place rather than read into memory.
+	 * @param rowId
+	 * @return the row number, or -1 if there is no row with the id
+	 * @throws PSTException
+	 * @throws IOException
+	 */
+	int getRowIndex(int rowId)
+			throws PSTException, IOException
+	{
+		long row = this.find(rowId);
+		if (row < 0 || row >= numberOfDataSets) {
+			return -1;
+		}
+		return (int)row;
+	}
+
+	/**
+	 * Get the row with the given row id (the NID of the object for most tables), without reading the rest of the table.
+	 * @param rowId
+	 * @return a cursor on the row, or null if there is no row with the id
+	 * @throws PSTException
+	 * @throws IOException
+	 */
+	RowCursor getRowByRowId(int rowId)
+			throws PSTException, IOException
+	{
+		int row = this.getRowIndex(rowId);
+		if (row == -1) {
+			return null;
+		}
+		RowCursor cursor = new RowCursor();
+		cursor.moveTo(row);
+		return cursor;
+	}
+
+	/**
+	 * Find the rows for a set of row ids, the row index is read through once for all of them.
+	 * Move a cursor or view to the rows returned to read their values.
+	 * @param rowIds the row ids, in ascending order
+	 * @return the row number for each of the ids, -1 where there is no row with the id
+	 * @throws PSTException
+	 * @throws IOException
+	 */
+	int[] getRowIndexes(int[] rowIds)
+			throws PSTException, IOException
+	{
+		long[] found = this.find(rowIds);
+		int[] rowIndexes = new int[rowIds.length];
+		for (int x = 0; x < rowIds.length; x++) {
+			rowIndexes[x] = (found[x] < 0 || found[x] >= numberOfDataSets) ? -1 : (int)found[x];
+		}
+		return rowIndexes;
+	}
+
+	/**
+	 * Build the old style map of items for a row, from the columns.
+	 * @param store the rows that have been read
+	 * @param row the slot of the row in the store
+	 * @return the items found in the row, keyed on property id
+	 */
+	private HashMap<Integer, PSTTable7CItem> getItemMap(RowStore store, int row) {
+		HashMap<Integer, PSTTable7CItem> currentItem = new HashMap<Integer, PSTTable7CItem>();
+
+		// Put into the item map as PidTagLtpRowId (0x67F2)
+		PSTTable7CItem item = new PSTTable7CItem();
+		item.itemIndex = -1;
+		item.entryValueType = 3;
+		item.entryType = 0x67F2;
+		item.entryValueReference = store.rowIds[row];
+		item.isExternalValueReference = true;
+		currentItem.put(item.entryType, item);
+
+		for (int col : this.columnsRead) {
+			if (!store.isCellPresent(row, col)) {
+				continue;
+			}
+
+			item = new PSTTable7CItem();
+			item.itemIndex = col;
+			item.entryValueType = columnDescriptors[col].type;
+			item.entryType = columnDescriptors[col].id;
+			item.entryValueReference = 0;
+
+			if (store.longColumns[col] != null) {
+				// 8 byte data
+				item.data = new byte[8];
+				long value = store.longColumns[col][row];
+				for (int x = 0; x < 8; x++) {
+					item.data[x] = (byte)(value >>> (x * 8));
 				}
 			} else {
-				if ((currentValueArrayStart % BLOCK_SIZE) > BLOCK_SIZE - TCI_bm) {
-					// adjust!
-					//currentValueArrayStart += 8176 - (currentValueArrayStart % 8176);
-					currentValueArrayStart += blockPadding;
-					if (currentValueArrayStart + TCI_bm < rowNodeInfo.length()) {
-						continue;
-					}
+				item.entryValueReference = store.intColumns[col][row];
+				if (store.dataOffsets[col] != null && store.dataOffsets[col][row] != -1) {
+					// variable length data from the heap
+					item.data = new byte[store.dataLengths[col][row]];
+					System.arraycopy(store.arena, store.dataOffsets[col][row], item.data, 0, item.data.length);
+				} else {
+					item.isExternalValueReference = true;
 				}
 			}
-			byte[] bitmap = new byte[(cCols+7)/8];
-			//System.arraycopy(rowNodeInfo, currentValueArrayStart+TCI_1b, bitmap, 0, bitmap.length);
-			rowNodeInfo.in.seek(rowNodeInfo.startOffset+ currentValueArrayStart + TCI_1b);
-			rowNodeInfo.in.read(bitmap);
-
-			//int id = (int)PSTObject.convertLittleEndianBytesToLong(rowNodeInfo, currentValueArrayStart, currentValueArrayStart+4);
-			int id = (int)rowNodeInfo.seekAndReadLong(currentValueArrayStart, 4);
-
-			// Put into the item map as PidTagLtpRowId (0x67F2)
-			PSTTable7CItem item = new PSTTable7CItem();
-			item.itemIndex = -1;
-			item.entryValueType = 3;
-			item.entryType = 0x67F2;
-			item.entryValueReference = id;
-			item.isExternalValueReference = true;
+
 			currentItem.put(item.entryType, item);
+		}
+		return currentItem;
+	}
 
-			int col = 0;
-			if (overrideCol > -1) {
-				col = overrideCol;
-			}
-			for ( ; col < cCols; ++col )
-			{
-				// Does this column exist for this row?
-				int bitIndex = columnDescriptors[col].iBit / 8;
-				int bit = columnDescriptors[col].iBit % 8;
-				if ( (bitmap[bitIndex] & (1<<bit)) == 0 )
-				{
-					// Column doesn't exist
-					//System.out.printf("Col %d (0x%04X) not present\n", col, columnDescriptors[col].id);	/**/
+	/**
+	 * Work out where a row starts in the row matrix.
+	 * Rows don't cross the blocks the matrix is stored in, so there is some padding at the end of each block.
+	 * @param row
+	 * @return offset of the row in the row matrix
+	 */
+	private int getRowOffset(int row) {
+		int numberOfRowsPerBlock = this.rowBlockSize / TCI_bm;
+		return ((row / numberOfRowsPerBlock) * this.rowBlockSize) +
+			((row % numberOfRowsPerBlock) * TCI_bm);
+	}
 
-					continue;
+	/**
+	 * Read the whole row matrix into columns, in one pass.
+	 * @throws PSTException
+	 * @throws IOException
+	 */
+	private void loadRows()
+			throws PSTException, IOException
+	{
+		if (this.rows != null) {
+			return;
+		}
+
+		RowStore store = new RowStore(this.numberOfDataSets);
+		for (int row = 0; row < this.numberOfDataSets; row++) {
+			store.readRow(row, row);
+		}
+		this.rows = store;
+	}
+
+	/**
+	 * @return true if the values of the type are held in the row itself, rather than being a reference to them
+	 */
+	private static boolean isFixedSizeType(int type) {
+		return type == 0x0003 ||
+			type == 0x0004 ||
+			type == 0x000A;
+	}
+
+	/**
+	 * Rows of the table stored by column.
+	 * Fixed size values go into an array per column, variable length values from the heap
+	 * are copied into one shared arena, with an offset and length per cell.
+	 * Only the columns being read have arrays.
+	 */
+	private class RowStore {
+		int[] rowIds;
+		byte[] cellBitmaps;
+		int bitmapSize;
+		int[][] intColumns;
+		long[][] longColumns;
+		int[][] dataOffsets;
+		int[][] dataLengths;
+		byte[] arena = new byte[0];
+		int arenaSize = 0;
+
+		/**
+		 * @param capacity the number of rows to hold
+		 */
+		RowStore(int capacity) {
+			int numberOfColumns = getColumnCount();
+			this.rowIds = new int[capacity];
+			this.bitmapSize = (numberOfColumns + 7) / 8;
+			this.cellBitmaps = new byte[capacity * this.bitmapSize];
+			this.intColumns = new int[numberOfColumns][];
+			this.longColumns = new long[numberOfColumns][];
+			this.dataOffsets = new int[numberOfColumns][];
+			this.dataLengths = new int[numberOfColumns][];
+			for (int col : columnsRead) {
+				switch (columnDescriptors[col].cbData) {
+				case 8:
+					this.longColumns[col] = new long[capacity];
+					break;
+				case 1:
+				case 2:
+					this.intColumns[col] = new int[capacity];
+					break;
+				default:
+					this.intColumns[col] = new int[capacity];
+					if (!isFixedSizeType(columnDescriptors[col].type)) {
+						this.dataOffsets[col] = new int[capacity];
+						this.dataLengths[col] = new int[capacity];
+					}
+					break;
 				}
+			}
+		}
+
+		boolean isCellPresent(int slot, int col) {
+			int iBit = columnDescriptors[col].iBit;
+			return (this.cellBitmaps[(slot * this.bitmapSize) + (iBit / 8)] & (1 << (iBit % 8))) != 0;
+		}
 
-				item = new PSTTable7CItem();
-				item.itemIndex = col;
-				
-				item.entryValueType = columnDescriptors[col].type;
-				item.entryType = columnDescriptors[col].id;
-				item.entryValueReference = 0;
+		boolean isColumnRead(int col) {
+			return this.intColumns[col] != null || this.longColumns[col] != null;
+		}
+
+		/**
+		 * decode a row of the row matrix into the given slot
+		 */
+		void readRow(int row, int slot)
+				throws PSTException, IOException
+		{
+			int rowOffset = getRowOffset(row);
+			this.rowIds[slot] = (int)rowNodeInfo.readU32(rowOffset);
+			for (int x = 0; x < this.bitmapSize; x++) {
+				this.cellBitmaps[(slot * this.bitmapSize) + x] = (byte)rowNodeInfo.readU8(rowOffset + TCI_1b + x);
+			}
 
-				
-				switch ( columnDescriptors[col].cbData ) {
+			for (int col : columnsRead) {
+				if (!this.isCellPresent(slot, col)) {
+					continue;
+				}
+				int valueOffset = rowOffset + columnDescriptors[col].ibData;
+				switch (columnDescriptors[col].cbData) {
 				case 1:	// Single byte data
-					//item.entryValueReference = rowNodeInfo[currentValueArrayStart+columnDescriptors[col].ibData] & 0xFF;
-					item.entryValueReference = (int)rowNodeInfo.seekAndReadLong(currentValueArrayStart+columnDescriptors[col].ibData, 1) & 0xFF;
-					item.isExternalValueReference = true;
-/*
-					System.out.printf("\tboolean: %s %s\n",
-							PSTFile.getPropertyDescription(item.entryType, item.entryValueType),
-							item.entryValueReference == 0 ? "false" : "true");
-/**/
+					this.intColumns[col][slot] = rowNodeInfo.readU8(valueOffset);
 					break;
-
 				case 2:	// Two byte data
-					/*
-					item.entryValueReference = (rowNodeInfo[currentValueArrayStart+columnDescriptors[col].ibData] & 0xFF) |
-												  ((rowNodeInfo[currentValueArrayStart+columnDescriptors[col].ibData+1] & 0xFF) << 8);
-					 */
-					item.entryValueReference = (int)rowNodeInfo.seekAndReadLong(currentValueArrayStart+columnDescriptors[col].ibData, 2) & 0xFFFF;
-					item.isExternalValueReference = true;
-/*
-					short i16 = (short)item.entryValueReference;
-					System.out.printf("\tInteger16: %s %d\n", 
-							PSTFile.getPropertyDescription(item.entryType, item.entryValueType),
-							i16);
-/**/
+					this.intColumns[col][slot] = rowNodeInfo.readU16(valueOffset);
 					break;
-
 				case 8:	// 8 byte data
-					item.data = new byte[8];
-					//System.arraycopy(rowNodeInfo, currentValueArrayStart+columnDescriptors[col].ibData, item.data, 0, 8);
-					rowNodeInfo.in.seek(rowNodeInfo.startOffset +currentValueArrayStart+columnDescriptors[col].ibData);
-					rowNodeInfo.in.read(item.data);
-/*					System.out.printf("\tInteger64: %s\n",
-							PSTFile.getPropertyDescription(item.entryType, item.entryValueType));	/**/
+					this.longColumns[col][slot] = rowNodeInfo.readLittleEndian(valueOffset, 8);
 					break;
-
 				default:// Four byte data
-
-					/*
-					if (numberOfIndexLevels > 0 ) {
-						System.out.println("here");
-						System.out.println(rowNodeInfo.length());
-						PSTObject.printHexFormatted(rowNodeInfo, true);
-						System.exit(0);
-					}
-					 */
-
-					//item.entryValueReference = (int)PSTObject.convertLittleEndianBytesToLong(rowNodeInfo, currentValueArrayStart+columnDescriptors[col].ibData, currentValueArrayStart+columnDescriptors[col].ibData+4);
-					item.entryValueReference = (int)rowNodeInfo.seekAndReadLong(currentValueArrayStart+columnDescriptors[col].ibData, 4);
-					if ( columnDescriptors[col].type == 0x0003 ||
-						 columnDescriptors[col].type == 0x0004 ||
-						 columnDescriptors[col].type == 0x000A ) {
-						// True 32bit data
-						item.isExternalValueReference = true;
-/*						System.out.printf("\tInteger32: %s %d\n", 
-								PSTFile.getPropertyDescription(item.entryType, item.entryValueType),
-								item.entryValueReference);	/**/
-						break;
+					int value = (int)rowNodeInfo.readU32(valueOffset);
+					this.intColumns[col][slot] = value;
+					if (this.dataOffsets[col] != null) {
+						this.readHeapValue(col, slot, value);
 					}
-
-					// Variable length data so it's an hnid
-					if ( (item.entryValueReference & 0x1F) != 0 ) {
-						// Some kind of external reference...
-						item.isExternalValueReference = true;
-/*						System.out.printf("\tOther: %s 0x%08X\n",
-								PSTFile.getPropertyDescription(item.entryType, item.entryValueType), item.entryValueReference);	/**/
-						break;						
-					}
-					
-					if ( item.entryValueReference == 0 ) {
-/*						System.out.printf("\tOther: %s 0 bytes\n",
-								PSTFile.getPropertyDescription(item.entryType, item.entryValueType));	/**/
-						item.data = new byte[0];
-						break;
-					} else {
-						NodeInfo entryInfo = getNodeInfo(item.entryValueReference);
-						item.data = new byte[entryInfo.length()];
-						//System.arraycopy(entryInfo, 0, item.data, 0, item.data.length);
-						entryInfo.in.seek(entryInfo.startOffset);
-						entryInfo.in.read(item.data);
-					}
-/*
-					if ( item.entryValueType != 0x001F ) {
-						System.out.printf("\tOther: %s %d bytes\n",
-								PSTFile.getPropertyDescription(item.entryType, item.entryValueType),
-								item.data.length);
-					} else {
-						try {
-							String s = new String(item.data, "UTF-16LE");
-							System.out.printf("\tString: %s \"%s\"\n", 
-									PSTFile.getPropertyDescription(item.entryType, item.entryValueType),
-									s);
-						} catch (UnsupportedEncodingException e) {
-							e.printStackTrace();
-						}
-					}
-/**/
 					break;
 				}
+			}
+		}
+
+		/**
+		 * Copy a variable length value out of the heap and into the arena, if it's there.
+		 */
+		private void readHeapValue(int col, int slot, int hnid)
+				throws PSTException, IOException
+		{
+			this.dataOffsets[col][slot] = -1;
+			if ((hnid & 0x1F) != 0) {
+				// Some kind of external reference...
+				return;
+			}
+
+			int length = 0;
+			NodeInfo entryInfo = null;
+			if (hnid != 0) {
+				entryInfo = getNodeInfo(hnid);
+				length = entryInfo.length();
+			}
+			if (this.arenaSize + length > this.arena.length) {
+				this.arena = Arrays.copyOf(this.arena, Math.max(this.arenaSize + length, this.arena.length * 2));
+			}
+			if (length > 0) {
+				entryInfo.in.seek(entryInfo.startOffset);
+				entryInfo.in.read(this.arena, this.arenaSize, length);
+			}
+			this.dataOffsets[col][slot] = this.arenaSize;
+			this.dataLengths[col][slot] = length;
+			this.arenaSize += length;
+		}
+	}
+
+	/**
+	 * Get a view of the rows of the table.
+	 * All of the rows are read the first time, the view is then moved from row to row
+	 * and nothing is created per row.
+	 * @return a view positioned before the first row
+	 * @throws PSTException
+	 * @throws IOException
+	 */
+	RowView getRowView()
+			throws PSTException, IOException
+	{
+		this.loadRows();
+		return new RowView();
+	}
+
+	/**
+	 * Get a cursor over the rows of the table.
+	 * Unlike a view, a cursor only decodes the rows it lands on, one at a time, into buffers that are reused.
+	 * @return a cursor positioned before the first row
+	 */
+	RowCursor getRowCursor() {
+		return new RowCursor();
+	}
+
+	/**
+	 * Values of the current row, looked up by property id.
+	 */
+	abstract class RowValues {
+		RowStore store;
+		int row = -1;
+		int slot = -1;
+
+		int getRow() {
+			return this.row;
+		}
+
+		/**
+		 * @return the row id (PidTagLtpRowId), the descriptor id of the item in a contents table
+		 */
+		int getRowId() {
+			return this.store.rowIds[this.slot];
+		}
+
+		/**
+		 * @return true if the row has a value for the property
+		 */
+		boolean isPresent(int propertyId) {
+			int col = findColumn(propertyId);
+			return col != -1 && this.store.isCellPresent(this.slot, col);
+		}
+
+		/**
+		 * @return the value type of the column for the property, -1 if the table doesn't have it
+		 */
+		int getValueType(int propertyId) {
+			int col = findColumn(propertyId);
+			return col == -1 ? -1 : columnDescriptors[col].type;
+		}
+
+		/**
+		 * get a value stored in the row itself, for heap values this is the reference
+		 * @return the value, or defaultValue if it isn't present
+		 */
+		int getIntValue(int propertyId, int defaultValue) {
+			int col = findColumn(propertyId);
+			if (col == -1 || !this.store.isCellPresent(this.slot, col)) {
+				return defaultValue;
+			}
+			if (this.store.longColumns[col] != null) {
+				return (int)this.store.longColumns[col][this.slot];
+			}
+			return this.store.intColumns[col][this.slot];
+		}
+
+		/**
+		 * get a 64 bit value (such as a date), or a smaller value widened
+		 * @return the value, or defaultValue if it isn't present
+		 */
+		long getLongValue(int propertyId, long defaultValue) {
+			int col = findColumn(propertyId);
+			if (col == -1 || !this.store.isCellPresent(this.slot, col)) {
+				return defaultValue;
+			}
+			if (this.store.longColumns[col] != null) {
+				return this.store.longColumns[col][this.slot];
+			}
+			return this.store.intColumns[col][this.slot];
+		}
+
+		/**
+		 * Values too big for the heap are in a subnode of the table, they are read from there.
+		 * @return a copy of a variable length value, null if it isn't present
+		 */
+		byte[] getBinaryValue(int propertyId)
+				throws PSTException, IOException
+		{
+			int col = findColumn(propertyId);
+			if (col == -1 || !this.store.isCellPresent(this.slot, col) || this.store.dataOffsets[col] == null) {
+				return null;
+			}
+			int offset = this.store.dataOffsets[col][this.slot];
+			if (offset == -1) {
+				int hnid = this.store.intColumns[col][this.slot];
+				if (!hasSubNode(hnid)) {
+					return null;
+				}
+				NodeInfo entryInfo = getNodeInfo(hnid);
+				byte[] data = new byte[entryInfo.length()];
+				entryInfo.in.seek(entryInfo.startOffset);
+				entryInfo.in.read(data);
+				return data;
+			}
+			return Arrays.copyOfRange(this.store.arena, offset, offset + this.store.dataLengths[col][this.slot]);
+		}
 
-				currentItem.put(item.entryType, item);
-				
-				description += item.toString()+"\n\n";
+		/**
+		 * @param codepage the code page of the item, used for 8 bit strings
+		 * @return a string value, null if it isn't present
+		 */
+		String getStringValue(int propertyId, PSTFile.CodePage codepage)
+				throws PSTException, IOException
+		{
+			byte[] data = this.getBinaryValue(propertyId);
+			if (data == null) {
+				return null;
 			}
-			itemList.add(dataSetNumber, currentItem);
-			dataSetNumber++;
-			currentValueArrayStart += TCI_bm;
+			return PSTObject.createJavaString(data, this.getValueType(propertyId), codepage);
 		}
-		
-//		System.out.println(description);
+	}
 
-		return itemList;
+	/**
+	 * A reusable view of one row of the table at a time, over rows that have all been read.
+	 */
+	class RowView extends RowValues {
+		RowView() {
+			this.store = rows;
+		}
+
+		/**
+		 * move the view to the given row
+		 * @return false if there is no such row
+		 */
+		boolean moveTo(int row) {
+			if (row < 0 || row >= numberOfDataSets) {
+				return false;
+			}
+			this.row = row;
+			this.slot = row;
+			return true;
+		}
+	}
+
+	/**
+	 * A cursor over the rows of the table, forwards or to any row.
+	 * Only the row the cursor is on is decoded, skipped rows are never read.
+	 */
+	class RowCursor extends RowValues {
+		// the row the next call to next() will read
+		private int nextRow = 0;
+
+		RowCursor() {
+			this.store = new RowStore(1);
+			this.slot = 0;
+		}
+
+		/**
+		 * move to the next row and read it
+		 * @return false if there are no more rows
+		 */
+		boolean next()
+				throws PSTException, IOException
+		{
+			return this.moveTo(this.nextRow);
+		}
+
+		/**
+		 * skip over rows without reading them
+		 * @param numberOfRows
+		 * @return the number of rows actually skipped
+		 */
+		int skip(int numberOfRows) {
+			int skipped = Math.max(0, Math.min(numberOfRows, numberOfDataSets - this.nextRow));
+			this.nextRow += skipped;
+			return skipped;
+		}
+
+		/**
+		 * move to the given row and read it
+		 * @return false if there is no such row
+		 */
+		boolean moveTo(int row)
+				throws PSTException, IOException
+		{
+			if (row < 0 || row >= numberOfDataSets) {
+				this.row = -1;
+				this.nextRow = Math.max(0, Math.min(row, numberOfDataSets));
+				return false;
+			}
+			if (row != this.row) {
+				// the previous row's variable length values aren't needed any more
+				this.store.arenaSize = 0;
+				this.row = -1;
+				this.store.readRow(row, 0);
+				this.row = row;
+			}
+			this.nextRow = row + 1;
+			return true;
+		}
+
+		/**
+		 * @return the row the next call to next() will read
+		 */
+		int getNextRow() {
+			return this.nextRow;
+		}
+	}
+
+	/**
+	 * find the column for a property id
+	 * @return the column, -1 if it isn't in the table (or wasn't read)
+	 */
+	int findColumn(int propertyId) {
+		for (int col : this.columnsRead) {
+			if (columnDescriptors[col].id == propertyId) {
+				return col;
+			}
+		}
+		return -1;
 	}
 	
 	class ColumnDescriptor {
@@ -372,15 +733,15 @@ class PSTTable7C extends PSTTable {
 				throws PSTException, IOException
 		{
 			//type = (int)(PSTObject.convertLittleEndianBytesToLong(data, offset, offset+2) & 0xFFFF);
-			type = ((int)nodeInfo.seekAndReadLong(offset, 2) & 0xFFFF);
+			type = nodeInfo.readU16(offset);
 			//id = (int)(PSTObject.convertLittleEndianBytesToLong(data, offset+2, offset+4) & 0xFFFF);
-			id = (int)(nodeInfo.seekAndReadLong(offset+2, 2) & 0xFFFF);
+			id = nodeInfo.readU16(offset+2);
 			//ibData = (int)(PSTObject.convertLittleEndianBytesToLong(data, offset+4, offset+6) & 0xFFFF);
-			ibData = (int)(nodeInfo.seekAndReadLong(offset+4, 2) & 0xFFFF);
+			ibData = nodeInfo.readU16(offset+4);
 			//cbData = (int)data[offset+6] & 0xFF;
-			cbData = (int)nodeInfo.in.read() & 0xFF;
+			cbData = nodeInfo.readU8(offset+6);
 			//iBit = (int)data[offset+7] & 0xFF;
-			iBit = (int)nodeInfo.in.read() & 0xFF;
+			iBit = nodeInfo.readU8(offset+7);
 		}
 
 		int		type;
@@ -403,9 +764,85 @@ class PSTTable7C extends PSTTable {
 		return items.get(itemNumber);
 	}
 /**/
+	/**
+	 * @return the number of columns in the table
+	 */
+	int getColumnCount() {
+		return (columnDescriptors == null) ? 0 : columnDescriptors.length;
+	}
+
+	/**
+	 * @return the property id held in a column
+	 */
+	int getColumnPropertyId(int col) {
+		return columnDescriptors[col].id;
+	}
+
+	/**
+	 * @return the value type of a column
+	 */
+	int getColumnType(int col) {
+		return columnDescriptors[col].type;
+	}
+
+	/**
+	 * @return the size of the values of a column in the row itself (1, 2, 4 or 8 bytes)
+	 */
+	int getColumnSize(int col) {
+		return columnDescriptors[col].cbData;
+	}
+
+	/**
+	 * get the size of a cell, for variable length values this is the size of the value in the heap.
+	 * Only available once the rows have been read.
+	 * @return the size in bytes, -1 if the cell isn't present or hasn't been read
+	 */
+	int getCellSize(int row, int col) {
+		RowStore store = this.rows;
+		if (store == null || row < 0 || row >= numberOfDataSets ||
+			col < 0 || col >= cCols ||
+			!store.isColumnRead(col) ||
+			!store.isCellPresent(row, col))
+		{
+			return -1;
+		}
+		if (store.dataOffsets[col] != null && store.dataOffsets[col][row] != -1) {
+			return store.dataLengths[col][row];
+		}
+		return columnDescriptors[col].cbData;
+	}
+
+	/**
+	 * Describe the table: the header, the columns and, if they have been read, the cells of each row.
+	 * This is only built when asked for, nothing is kept while the table is being read.
+	 */
 	@Override
 	public String toString() {
-		return this.description;
+		StringBuilder output = new StringBuilder(super.toString());
+		output.append("Number of keys: ").append(numberOfKeys).append("\n");
+		output.append("Number of columns: ").append(cCols).append("\n");
+		output.append("Row Size: ").append(TCI_bm).append("\n");
+		output.append("hidRowIndex: ").append(hidRowIndex).append("\n");
+		output.append("hnidRows: ").append(hnidRows).append("\n");
+		output.append("Number of rows: ").append(numberOfDataSets).append("\n");
+		for (int col = 0; col < this.getColumnCount(); col++) {
+			output.append(String.format("Column %d: 0x%04X type 0x%04X size %d offset %d bit %d\n",
+					col, columnDescriptors[col].id, columnDescriptors[col].type,
+					columnDescriptors[col].cbData, columnDescriptors[col].ibData, columnDescriptors[col].iBit));
+		}
+		if (this.rows != null) {
+			for (int row = 0; row < numberOfDataSets; row++) {
+				output.append(String.format("Row %d: id 0x%08X", row, this.rows.rowIds[row]));
+				for (int col : this.columnsRead) {
+					int size = this.getCellSize(row, col);
+					if (size != -1) {
+						output.append(String.format(" 0x%04X:%04X[%d]", columnDescriptors[col].id, columnDescriptors[col].type, size));
+					}
+				}
+				output.append("\n");
+			}
+		}
+		return output.toString();
 	}
 	
 	public String getItemsString() {
@@ -417,5 +854,4 @@ class PSTTable7C extends PSTTable {
 	}
 	
 	ColumnDescriptor[]		  columnDescriptors = null;
-	HashMap<Integer, Integer> keyMap = null;
 }
@@ -1,54 +1,75 @@
-/**
- * Copyright 2010 Richard Johnson & Orin Eman
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *    http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- *
- * ---
- *
- * This file is part of java-libpst.
- *
- * java-libpst is free software: you can redistribute it and/or modify
- * it under the terms of the GNU Lesser General Public License as published by
- * the Free Software Foundation, either version 3 of the License, or
- * (at your option) any later version.
- *
- * java-libpst is distributed in the hope that it will be useful,
- * but WITHOUT ANY WARRANTY; without even the implied warranty of
- * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
- * GNU Lesser General Public License for more details.
- *
- * You should have received a copy of the GNU Lesser General Public License
- * along with java-libpst.  If not, see <http://www.gnu.org/licenses/>.
- *
- */
+/**
+ * Copyright 2010 Richard Johnson & Orin Eman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ---
+ *
+ * This file is part of java-libpst.
+ *
+ * java-libpst is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * java-libpst is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-libpst.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
 package com.pff;
 
+import java.io.IOException;
 import java.util.*;
 
 
 /**
  * The BC Table type. (Property Context)
  * Used by pretty much everything.
+ *
+ * The key table is read into sorted arrays of property id, type and value (or heap reference),
+ * values held in the heap are only read when they are asked for.
  * @author Richard Johnson
  */
 class PSTTableBC extends PSTTable {
 	
-	private HashMap<Integer, PSTTableBCItem> items = new HashMap<Integer, PSTTableBCItem>();
+	// only built if getItems() is called
+	private HashMap<Integer, PSTTableBCItem> items = null;
+
+	// the key table, sorted on property id
+	private int[] propertyIds;
+	private int[] valueTypes;
+	private int[] valueReferences;
+	private int[] keyTablePositions;
+
+	// item objects, created as they are asked for
+	private PSTTableBCItem[] itemObjects;
+
+	// values read from the heap so far
+	private byte[][] valueData;
+	private boolean valueCacheEnabled = true;
 	
 	PSTTableBC(PSTNodeInputStream in)
 		throws PSTException, java.io.IOException
 	{
 		super(in, new HashMap<Integer, PSTDescriptorItem>());
+		if (in.getPSTFile() != null) {
+			valueCacheEnabled = in.getPSTFile().isPropertyValueCacheEnabled();
+		}
 		//data = null;	// No direct access to data!
 		
 
@@ -58,132 +79,211 @@ class PSTTableBC extends PSTTable {
 			throw new PSTException("unable to create PSTTableBC, table does not appear to be a bc!");
 		}
 
-		// go through each of the entries.
+		// go through each of the entries, the key table may be spread over several nodes
+		// if the BTH has index levels
 		//byte[] keyTableInfo = getNodeInfo(hidRoot);
-		NodeInfo keyTableInfoNodeInfo = getNodeInfo(hidRoot);
-		byte[] keyTableInfo = new byte[keyTableInfoNodeInfo.length()];
-		keyTableInfoNodeInfo.in.seek(keyTableInfoNodeInfo.startOffset);
-		keyTableInfoNodeInfo.in.read(keyTableInfo);
+		List<NodeInfo> keyTableNodes = getKeyTableNodes();
+		int sizeOfRecord = sizeOfItemKey+sizeOfItemValue;
 
 		//PSTObject.printHexFormatted(keyTableInfo, true);
 		//System.out.println(in.length());
 		//System.exit(0);
-		numberOfKeys = keyTableInfo.length / (sizeOfItemKey+sizeOfItemValue);
-
-		description += ("Number of entries: "+numberOfKeys+"\n");
-
-		// Read the key table
-		int offset = 0;
-		for (int x = 0; x < numberOfKeys; x++) {
-			
-			PSTTableBCItem item = new PSTTableBCItem();
-			item.itemIndex = x;
-			item.entryType =(int)PSTObject.convertLittleEndianBytesToLong(keyTableInfo, offset+0, offset+2);
-			//item.entryType =(int)in.seekAndReadLong(offset, 2);
-			item.entryValueType = (int)PSTObject.convertLittleEndianBytesToLong(keyTableInfo, offset+2, offset+4);
-			//item.entryValueType = (int)in.seekAndReadLong(offset+2, 2);
-			item.entryValueReference = (int)PSTObject.convertLittleEndianBytesToLong(keyTableInfo, offset+4, offset+8);
-			//item.entryValueReference = (int)in.seekAndReadLong(offset+4, 4);
+		numberOfKeys = 0;
+		for (NodeInfo keyTableInfo : keyTableNodes) {
+			numberOfKeys += keyTableInfo.length() / sizeOfRecord;
+		}
 
-			// Data is in entryValueReference for all types <= 4 bytes long
-			switch ( item.entryValueType ) {
+		// Read the key table, they should already be in order, but make sure
+		int[] recordIds = new int[numberOfKeys];
+		int[] recordTypes = new int[numberOfKeys];
+		int[] recordReferences = new int[numberOfKeys];
+		long[] sortKeys = new long[numberOfKeys];
+		int x = 0;
+		for (NodeInfo keyTableInfo : keyTableNodes) {
+			int numberOfRecords = keyTableInfo.length() / sizeOfRecord;
+			for (int offset = 0; numberOfRecords > 0; numberOfRecords--, offset += sizeOfRecord) {
+				recordIds[x] = keyTableInfo.readU16(offset);
+				recordTypes[x] = keyTableInfo.readU16(offset+2);
+				recordReferences[x] = (int)keyTableInfo.readU32(offset+4);
+				sortKeys[x] = ((long)recordIds[x] << 32) | x;
+				x++;
+			}
+		}
+		Arrays.sort(sortKeys);
 
+		propertyIds = new int[numberOfKeys];
+		valueTypes = new int[numberOfKeys];
+		valueReferences = new int[numberOfKeys];
+		keyTablePositions = new int[numberOfKeys];
+		itemObjects = new PSTTableBCItem[numberOfKeys];
+		valueData = new byte[numberOfKeys][];
+		for (int index = 0; index < numberOfKeys; index++) {
+			x = (int)sortKeys[index];
+			propertyIds[index] = recordIds[x];
+			valueTypes[index] = recordTypes[x];
+			int valueReference = recordReferences[x];
+
+			// Data is in entryValueReference for all types <= 4 bytes long
+			switch ( valueTypes[index] ) {
 			case 0x0002:	// 16bit integer
-				item.entryValueReference &= 0xFFFF;
-			case 0x0003:	// 32bit integer
-			case 0x000A:	// 32bit error code
-/*
-				System.out.printf("Integer%s: 0x%04X:%04X, %d\n",
-					(item.entryValueType == 0x0002) ? "16" : "32",
-					item.entryType, item.entryValueType,
-					item.entryValueReference);
-/**/
-			case 0x0001:	// Place-holder
-			case 0x0004:	// 32bit floating
-				item.isExternalValueReference = true;
+				valueReference &= 0xFFFF;
 				break;
-
 			case 0x000b:	// Boolean - a single byte
-				item.entryValueReference &= 0xFF;
-/*
-				System.out.printf("boolean: 0x%04X:%04X, %s\n",
-						item.entryType, item.entryValueType, 
-						(item.entryValueReference == 0) ? "false" : "true");
-/**/
-				item.isExternalValueReference = true;
-				break;
-
-			case 0x000D:
-			default:
-				// Is it in the local heap?
-				item.isExternalValueReference = true; // Assume not
-				//System.out.println(item.entryValueReference);
-				//byte[] nodeInfo = getNodeInfo(item.entryValueReference);
-				NodeInfo nodeInfoNodeInfo = getNodeInfo(item.entryValueReference);
-				if ( nodeInfoNodeInfo == null ) {
-					// It's an external reference that we don't deal with here.
-/*
-					System.out.printf("%s: %shid 0x%08X\n",
-							(item.entryValueType == 0x1f || item.entryValueType == 0x1e) ? "String" : "Other",
-									PSTFile.getPropertyDescription(item.entryType, item.entryValueType),
-									item.entryValueReference);
-/**/
-				} else {
-					// Make a copy of the data
-					//item.data = new byte[nodeInfo.endOffset-nodeInfo.startOffset];
-					byte[] nodeInfo = new byte[nodeInfoNodeInfo.length()];
-					nodeInfoNodeInfo.in.seek(nodeInfoNodeInfo.startOffset);
-					nodeInfoNodeInfo.in.read(nodeInfo);
-					item.data = nodeInfo; // should be new array, so just use it
-					//System.arraycopy(nodeInfo.data, nodeInfo.startOffset, item.data, 0, item.data.length);
-					item.isExternalValueReference = false;
-/*				
-					if ( item.entryValueType == 0x1f ||
-						 item.entryValueType == 0x1e )
-					{
-						try {
-//							if ( item.entryType == 0x0037 )
-							{
-								String temp = new String(item.data, item.entryValueType == 0x1E ? "UTF8" : "UTF-16LE");
-								System.out.printf("String: 0x%04X:%04X, \"%s\"\n",
-										item.entryType, item.entryValueType, temp);
-							}
-						} catch (UnsupportedEncodingException e) {
-							e.printStackTrace();
-						}
-					}
-					else
-					{
-
-						System.out.printf("Other: 0x%04X:%04X, %d bytes\n",
-								item.entryType, item.entryValueType, item.data.length);
-
-					}
-/**/
-				}
+				valueReference &= 0xFF;
 				break;
 			}
-			
-			offset = offset + 8;
-						
-			items.put(item.entryType, item);
-			description += item.toString()+"\n\n";
+			valueReferences[index] = valueReference;
+			keyTablePositions[index] = x;
 		}
 
 		releaseRawData();
 	}
-	
+
+	/**
+	 * @return true if the values of the type are held in the key table itself
+	 */
+	private static boolean isInlineType(int type) {
+		switch (type) {
+		case 0x0001:	// Place-holder
+		case 0x0002:	// 16bit integer
+		case 0x0003:	// 32bit integer
+		case 0x0004:	// 32bit floating
+		case 0x000A:	// 32bit error code
+		case 0x000b:	// Boolean
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * find a property in the table
+	 * @param propertyId
+	 * @return the index of the property, or -1 if it isn't there
+	 */
+	int indexOf(int propertyId) {
+		int index = Arrays.binarySearch(propertyIds, propertyId);
+		return index < 0 ? -1 : index;
+	}
+
+	/**
+	 * the number of properties in the table
+	 */
+	int getPropertyCount() {
+		return numberOfKeys;
+	}
+
+	/**
+	 * get the item for a property, the item is only created the first time it's asked for
+	 * @param propertyId
+	 * @return the item, or null if the property isn't in the table
+	 */
+	PSTTableBCItem getItem(int propertyId) {
+		int index = indexOf(propertyId);
+		if (index == -1) {
+			return null;
+		}
+		return getItemAt(index);
+	}
+
+	private synchronized PSTTableBCItem getItemAt(int index) {
+		PSTTableBCItem item = itemObjects[index];
+		if (item == null) {
+			item = new PSTTableBCItem(this, index);
+			item.itemIndex = keyTablePositions[index];
+			item.entryType = propertyIds[index];
+			item.entryValueType = valueTypes[index];
+			item.entryValueReference = valueReferences[index];
+			item.isExternalValueReference = isExternalValueReference(index);
+			itemObjects[index] = item;
+		}
+		return item;
+	}
+
+	int getPropertyId(int index) {
+		return propertyIds[index];
+	}
+
+	int getValueType(int index) {
+		return valueTypes[index];
+	}
+
+	/**
+	 * @return the value itself for types of 4 bytes or less, otherwise a heap or subnode reference
+	 */
+	int getValueReference(int index) {
+		return valueReferences[index];
+	}
+
+	/**
+	 * @return true if the value is stored in a subnode, the reference is then the id of the subnode
+	 */
+	boolean isSubnodeValueReference(int index) {
+		return !isInlineType(valueTypes[index]) &&
+			(valueReferences[index] & 0x1F) != 0;
+	}
+
+	/**
+	 * @return true if the value isn't in the heap of this table, either because it's held in
+	 * the key table itself or because it is stored in a subnode
+	 */
+	boolean isExternalValueReference(int index) {
+		return isInlineType(valueTypes[index]) ||
+			(valueReferences[index] & 0x1F) != 0;
+	}
+
+	/**
+	 * Read a value out of the heap, this is only done when it is first asked for.
+	 * @param index
+	 * @return the value, an empty array for an empty value, null if it isn't in the heap
+	 * @throws PSTException
+	 * @throws IOException
+	 */
+	synchronized byte[] getValueData(int index)
+		throws PSTException, IOException
+	{
+		if (valueData[index] != null) {
+			return valueData[index];
+		}
+		if (isExternalValueReference(index)) {
+			return null;
+		}
+
+		NodeInfo nodeInfo = getNodeInfo(valueReferences[index]);
+		byte[] data = new byte[nodeInfo.length()];
+		if (data.length > 0) {
+			nodeInfo.in.readAt(nodeInfo.startOffset, data, 0, data.length);
+		}
+		if (valueCacheEnabled) {
+			valueData[index] = data;
+		}
+		return data;
+	}
 	
 	/**
 	 * get the items parsed out of this table.
+	 * The map is only built when this is called, use getItem() to look up a single property.
 	 * @return
 	 */
-	public HashMap<Integer, PSTTableBCItem> getItems() {
+	public synchronized HashMap<Integer, PSTTableBCItem> getItems() {
+		if (this.items == null) {
+			this.items = new HashMap<Integer, PSTTableBCItem>();
+			for (int index = 0; index < numberOfKeys; index++) {
+				this.items.put(propertyIds[index], getItemAt(index));
+			}
+		}
 		return this.items;
 	}
 	
+	/**
+	 * describe the table and its items, this is only built when asked for
+	 */
+	@Override
 	public String toString() {
-		return this.description;
+		StringBuilder output = new StringBuilder(super.toString());
+		output.append("Number of entries: ").append(numberOfKeys).append("\n");
+		for (PSTTableBCItem item : getItems().values()) {
+			output.append(item.toString()).append("\n\n");
+		}
+		return output.toString();
 	}
 }
-
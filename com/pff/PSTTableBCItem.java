@@ -39,6 +39,34 @@ package com.pff;
  */
 class PSTTableBCItem extends PSTTableItem
 {
+	// the table the value is read from, when it's asked for
+	private PSTTableBC table = null;
+	private int valueIndex = -1;
+
+	PSTTableBCItem() {
+	}
+
+	PSTTableBCItem(PSTTableBC table, int valueIndex) {
+		this.table = table;
+		this.valueIndex = valueIndex;
+	}
+
+	/**
+	 * get the data of the item, values in the heap are read from the table the first time
+	 * @return the data, null if the value couldn't be read
+	 */
+	@Override
+	public byte[] getData() {
+		if (this.table == null || this.isExternalValueReference) {
+			return this.data;
+		}
+		try {
+			return this.table.getValueData(this.valueIndex);
+		} catch (Exception e) {
+			System.err.println("Unable to read table item "+Integer.toHexString(this.entryType)+": "+e.toString());
+			return null;
+		}
+	}
 
 	public String toString() {
 		return "Table Item: "+super.toString() + "\n";
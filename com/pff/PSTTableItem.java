@@ -57,8 +57,17 @@ class PSTTableItem {
 	public byte[] data = new byte[0];
 	public boolean isExternalValueReference = false;
 	
+	/**
+	 * get the data of the item
+	 * @return
+	 */
+	public byte[] getData() {
+		return this.data;
+	}
+
 	public long getLongValue() {
-		if ( this.data.length > 0 ) {
+		byte[] data = this.getData();
+		if ( data != null && data.length > 0 ) {
 			return PSTObject.convertLittleEndianBytesToLong(data);
 		}
 		return -1;
@@ -74,6 +83,10 @@ class PSTTableItem {
 	 * @return
 	 */
 	public String getStringValue(int stringType) {
+		byte[] data = this.getData();
+		if ( data == null ) {
+			return "";
+		}
 		
 		if (stringType == VALUE_TYPE_PT_UNICODE) {
 			// we are a nice little-endian unicode string.
@@ -135,6 +148,7 @@ class PSTTableItem {
 
 	public String toString() {
 		String ret = PSTFile.getPropertyDescription(entryType, entryValueType);
+		byte[] data = this.getData();
 
 		if ( entryValueType == 0x000B )
 		{
@@ -145,6 +159,10 @@ class PSTTableItem {
 			// Either a true external reference, or entryValueReference contains the actual data
 			return ret + String.format("0x%08X (%d)", entryValueReference, entryValueReference);
 		}
+
+		if ( data == null ) {
+			return ret + "no data";
+		}
 		
 		if ( entryValueType == 0x0005 ||
 			 entryValueType == 0x0014 ) {
@@ -0,0 +1,53 @@
+package example;
+import com.pff.*;
+import java.util.*;
+
+/**
+ * Measures how fast each of the PST encryption algorithms can be decoded.
+ * usage: DecodeBenchmark [megabytes]
+ */
+public class DecodeBenchmark {
+	public static void main(String[] args)
+	{
+		int megabytes = 256;
+		if (args.length > 0) {
+			megabytes = Integer.parseInt(args[0]);
+		}
+		try {
+			run(PSTFile.ENCRYPTION_TYPE_COMPRESSIBLE, "compressible", megabytes);
+			run(PSTFile.ENCRYPTION_TYPE_CYCLIC, "cyclic", megabytes);
+		} catch (Exception err) {
+			err.printStackTrace();
+		}
+	}
+
+	static void run(int encryptionType, String name, int megabytes)
+			throws PSTException
+	{
+		PSTCrypt crypt = PSTCrypt.getInstance(encryptionType);
+
+		// work on a set of blocks the same size as the ones in a PST
+		byte[] data = new byte[8176 * 128];
+		new Random(1).nextBytes(data);
+		long total = (long)megabytes * 1024 * 1024;
+
+		// warm up, then measure
+		decode(crypt, data, total / 4);
+		long start = System.nanoTime();
+		decode(crypt, data, total);
+		long elapsed = System.nanoTime() - start;
+
+		System.out.printf("%s: %d MB in %d ms, %.1f MB/s\n", name, megabytes, elapsed / 1000000,
+				megabytes / (elapsed / 1000000000.0));
+	}
+
+	static void decode(PSTCrypt crypt, byte[] data, long total) {
+		long bid = 4;
+		for (long done = 0; done < total; done += data.length) {
+			for (int offset = 0; offset < data.length; offset += 8176) {
+				crypt.decode(data, offset, 8176, bid, 0);
+				bid += 4;
+			}
+		}
+	}
+}
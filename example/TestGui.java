@@ -357,14 +357,18 @@ class EmailTableModel extends AbstractTableModel {
     	return 0;
     }
     
-    public PSTMessage getMessageAtRow(int row) {
-    	PSTMessage next = null;
+    /**
+     * the summaries come straight from the contents table of the folder,
+     * so listing a folder doesn't open every message in it
+     */
+    public PSTMessageSummary getSummaryAtRow(int row) {
+    	PSTMessageSummary next = null;
 		try {
 	    	if (cache.containsKey(row)) {
-				next = (PSTMessage)cache.get(row);
+				next = (PSTMessageSummary)cache.get(row);
 			} else {
 	    		theFolder.moveChildCursorTo(row);
-				next = (PSTMessage)theFolder.getNextChild();
+				next = theFolder.getNextChildSummary();
 	    		cache.put(row, next);
 			}
 		} catch (Exception e) {
@@ -372,12 +376,24 @@ class EmailTableModel extends AbstractTableModel {
 		}
     	return next;
     }
+
+    public PSTMessage getMessageAtRow(int row) {
+    	PSTMessageSummary summary = getSummaryAtRow(row);
+		try {
+			if (summary != null) {
+				return summary.getMessage();
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+    	return null;
+    }
     
     
     public Object getValueAt(int row, int col) {
     	// get the child at...
     	try {
-			PSTMessage next = getMessageAtRow(row);
+			PSTMessageSummary next = getSummaryAtRow(row);
 
 			if (next == null) {
 				return null;
@@ -385,14 +401,14 @@ class EmailTableModel extends AbstractTableModel {
     		
 			switch (col) {
 				case 0:
-					return next.getDescriptorNode().descriptorIdentifier+"";
+					return next.getDescriptorNodeId()+"";
 				case 1:
 					return next.getSubject();
 				case 2:
 					return next.getSentRepresentingName() + " <"+ next.getSentRepresentingEmailAddress() +">";
 				case 3:
 					return next.getReceivedByName() + " <"+next.getReceivedByAddress()+">" + 
-						next.displayTo();
+						next.getDisplayTo();
 				case 4:
 					return next.getClientSubmitTime();
 //					return next.isFlagged();
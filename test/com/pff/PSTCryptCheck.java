@@ -0,0 +1,127 @@
+/**
+ * Copyright 2010 Richard Johnson & Orin Eman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ---
+ *
+ * This file is part of java-libpst.
+ *
+ * java-libpst is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * java-libpst is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-libpst.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.pff;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Known answer checks for the cyclic ("high") encryption of PSTCrypt.
+ * The expected values were worked out with the CryptCyclic routine of the PST spec, byte by byte.
+ */
+public class PSTCryptCheck {
+
+	// bid, plain data, encrypted data
+	private static final Object[][] CYCLIC_VECTORS = {
+		{ 0x4L,
+			"000102030405060708090a0b0c0d0e0f101112131415161718191a1b1c1d1e1f",
+			"b68b67d918c3b83b2b61f02e5b39fab168b688f08b8f0b064e47bb0e1f2753c3" },
+		{ 0x1234567CL,
+			"54686520717569636b2062726f776e20666f78206a756d7073206f76657220746865206c617a7920646f67",
+			"b9ba553c22f921e86fe199f5d1feb9eab6a77cc3a0792c318fbc6ed6e6b281f069b061acf61918328b0ec7" },
+		// only the low 32 bits of the bid are used for the key
+		{ 0x500ABCDE8L,
+			"00ff807f01fe55aa",
+			"f6f5dedd570bff5b" },
+		// the key wraps at 16 bits
+		{ 0xFFFEL,
+			"102030405060",
+			"29a625f909ab" },
+	};
+
+	public static void main(String[] args)
+		throws PSTException
+	{
+		PSTCrypt crypt = PSTCrypt.getInstance(PSTFile.ENCRYPTION_TYPE_CYCLIC);
+		check(crypt == PSTCrypt.cyclic, "getInstance didn't return the cyclic decoder");
+		check(crypt.getEncryptionType() == PSTFile.ENCRYPTION_TYPE_CYCLIC, "wrong encryption type");
+
+		for (Object[] vector : CYCLIC_VECTORS) {
+			long bid = (Long)vector[0];
+			byte[] plain = fromHex((String)vector[1]);
+			byte[] encrypted = fromHex((String)vector[2]);
+			String name = "bid 0x"+Long.toHexString(bid);
+
+			// the whole block
+			byte[] data = encrypted.clone();
+			crypt.decode(data, 0, data.length, bid, 0);
+			check(Arrays.equals(data, plain), "decode differs for "+name);
+			crypt.encode(data, 0, data.length, bid, 0);
+			check(Arrays.equals(data, encrypted), "encode differs for "+name);
+
+			// the block in two parts, in the middle of a larger array
+			for (int split = 0; split <= encrypted.length; split++) {
+				data = new byte[encrypted.length + 6];
+				System.arraycopy(encrypted, 0, data, 3, encrypted.length);
+				crypt.decode(data, 3, split, bid, 0);
+				crypt.decode(data, 3 + split, encrypted.length - split, bid, split);
+				check(Arrays.equals(Arrays.copyOfRange(data, 3, 3 + plain.length), plain),
+						"decode of parts differs for "+name+" split at "+split);
+				check(data[0] == 0 && data[1] == 0 && data[2] == 0 &&
+						data[data.length - 3] == 0 && data[data.length - 2] == 0 && data[data.length - 1] == 0,
+						"decode wrote outside its range for "+name);
+			}
+
+			// one byte at a time
+			for (int x = 0; x < encrypted.length; x++) {
+				check(crypt.decode(encrypted[x] & 0xff, bid, x) == (plain[x] & 0xff),
+						"decode of byte "+x+" differs for "+name);
+			}
+
+			// a buffer without an array
+			ByteBuffer buffer = ByteBuffer.allocateDirect(encrypted.length);
+			buffer.put(encrypted);
+			crypt.decode(buffer, 0, encrypted.length, bid, 0);
+			data = new byte[encrypted.length];
+			buffer.position(0);
+			buffer.get(data);
+			check(Arrays.equals(data, plain), "decode of a direct buffer differs for "+name);
+		}
+		System.out.println("checked "+CYCLIC_VECTORS.length+" cyclic vectors");
+	}
+
+	private static byte[] fromHex(String hex) {
+		byte[] data = new byte[hex.length() / 2];
+		for (int x = 0; x < data.length; x++) {
+			data[x] = (byte)Integer.parseInt(hex.substring(x * 2, x * 2 + 2), 16);
+		}
+		return data;
+	}
+
+	static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new IllegalStateException(message);
+		}
+	}
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright 2010 Richard Johnson & Orin Eman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ---
+ *
+ * This file is part of java-libpst.
+ *
+ * java-libpst is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * java-libpst is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-libpst.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.pff;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Checks that summaries looked up by descriptor id match the summaries read in order
+ * through the folder cursor, and that ids which aren't children of a folder aren't found.
+ * Run with the path of a PST file.
+ */
+public class PSTFolderSummaryCheck {
+
+	public static void main(String[] args)
+		throws PSTException, IOException
+	{
+		PSTFile pstFile = new PSTFile(args[0]);
+		int checked = checkFolder(pstFile.getRootFolder());
+		System.out.println("checked "+checked+" summaries");
+	}
+
+	static int checkFolder(PSTFolder folder)
+		throws PSTException, IOException
+	{
+		int checked = 0;
+		for (PSTFolder subFolder : folder.getSubFolders()) {
+			checked += checkFolder(subFolder);
+		}
+
+		TreeMap<Integer, PSTMessageSummary> inOrder = new TreeMap<Integer, PSTMessageSummary>();
+		folder.moveChildCursorTo(0);
+		PSTMessageSummary summary = folder.getNextChildSummary();
+		while (summary != null) {
+			inOrder.put((int)summary.getDescriptorNodeId(), summary);
+			summary = folder.getNextChildSummary();
+		}
+
+		// every child, each followed by an id that can't be a message
+		int[] descriptorIds = new int[inOrder.size() * 2];
+		int x = 0;
+		for (int descriptorId : inOrder.keySet()) {
+			descriptorIds[x++] = descriptorId;
+			descriptorIds[x++] = descriptorId + 1;
+		}
+
+		PSTMessageSummary[] found = folder.getChildSummaries(descriptorIds);
+		x = 0;
+		for (Map.Entry<Integer, PSTMessageSummary> entry : inOrder.entrySet()) {
+			String expected = describe(entry.getValue());
+			check(expected.equals(describe(folder.getChildSummary(entry.getKey()))),
+					"getChildSummary differs for "+expected);
+			check(folder.getChildSummary(entry.getKey() + 1) == null,
+					"getChildSummary found "+(entry.getKey() + 1));
+			check(expected.equals(describe(found[x])),
+					"getChildSummaries differs for "+expected);
+			check(found[x + 1] == null,
+					"getChildSummaries found "+(entry.getKey() + 1));
+			x += 2;
+			checked++;
+		}
+
+		// the lookups don't move the cursor
+		check(folder.getNextChildSummary() == null, "the folder cursor was moved");
+		return checked;
+	}
+
+	static String describe(PSTMessageSummary summary) {
+		if (summary == null) {
+			return "none";
+		}
+		return summary.getDescriptorNodeId()+" "+summary.getMessageClass()+" "+summary.getSubject()+
+			" "+summary.getSentRepresentingName()+" "+summary.getDisplayTo()+" "+summary.getDisplayCC()+
+			" "+time(summary.getClientSubmitTime())+" "+time(summary.getMessageDeliveryTime())+
+			" "+summary.getMessageSize()+" "+summary.getImportance()+" "+summary.isRead()+
+			" "+summary.isUnsent()+" "+summary.hasAttachments()+" "+summary.isFromMe();
+	}
+
+	private static String time(Date date) {
+		return date == null ? "-" : Long.toString(date.getTime());
+	}
+
+	static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new IllegalStateException(message);
+		}
+	}
+}
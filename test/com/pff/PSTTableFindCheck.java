@@ -0,0 +1,226 @@
+/**
+ * Copyright 2010 Richard Johnson & Orin Eman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * ---
+ *
+ * This file is part of java-libpst.
+ *
+ * java-libpst is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * java-libpst is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-libpst.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.pff;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Checks that PSTTable.find(int) and find(int[]) give the same results as a linear scan
+ * of the records, on BTHs built in memory with 0, 1 and 2 index levels.
+ */
+public class PSTTableFindCheck {
+
+	public static void main(String[] args)
+		throws PSTException, IOException
+	{
+		Random random = new Random(18);
+		int checked = 0;
+		for (int sizeOfKey = 2; sizeOfKey <= 4; sizeOfKey += 2) {
+			for (int levels = 0; levels <= 2; levels++) {
+				checked += checkTable(random, sizeOfKey, levels);
+			}
+		}
+		System.out.println("checked "+checked+" lookups");
+	}
+
+	static int checkTable(Random random, int sizeOfKey, int levels)
+		throws PSTException, IOException
+	{
+		// the records, keys are compared unsigned
+		long maxKey = (1L << (sizeOfKey * 8)) - 1;
+		long maxGap = maxKey / 200;
+		TreeMap<Long, Long> records = new TreeMap<Long, Long>();
+		for (long key = 1 + random.nextInt(3); key <= maxKey && records.size() < 300; key += 1 + (long)(random.nextDouble() * maxGap)) {
+			records.put(key, (long)random.nextInt(Integer.MAX_VALUE));
+		}
+
+		PSTTable table = new PSTTable(new PSTNodeInputStream(null, buildHeap(random, records, sizeOfKey, levels)), null);
+		check(table.numberOfIndexLevels == levels, "wrong number of index levels");
+
+		// every key, the keys either side of them and the ends of the key space
+		List<Long> wanted = new ArrayList<Long>();
+		wanted.add(0L);
+		for (long key : records.keySet()) {
+			wanted.add(key - 1);
+			wanted.add(key);
+			wanted.add(key);
+			wanted.add(key + 1);
+		}
+		wanted.add(maxKey);
+		wanted.add(0xFFFFFFFFL);
+
+		int[] keys = new int[wanted.size()];
+		for (int x = 0; x < keys.length; x++) {
+			keys[x] = (int)wanted.get(x).longValue();
+		}
+		long[] found = table.find(keys);
+		int[] reversed = new int[keys.length];
+		for (int x = 0; x < keys.length; x++) {
+			reversed[x] = keys[keys.length - 1 - x];
+		}
+		long[] foundReversed = table.find(reversed);
+
+		for (int x = 0; x < keys.length; x++) {
+			long expected = linearScan(records, keys[x] & 0xFFFFFFFFL);
+			String key = sizeOfKey+" byte keys, "+levels+" levels, key 0x"+Integer.toHexString(keys[x]);
+			check(table.find(keys[x]) == expected, "find(int) differs for "+key);
+			check(found[x] == expected, "find(int[]) differs for "+key);
+			check(foundReversed[keys.length - 1 - x] == expected, "find(int[]) out of order differs for "+key);
+		}
+
+		// just the keys in the table, so the next key wanted is often in the next leaf
+		int[] presentKeys = new int[records.size()];
+		int x = 0;
+		for (long key : records.keySet()) {
+			presentKeys[x++] = (int)key;
+		}
+		long[] foundPresent = table.find(presentKeys);
+		for (x = 0; x < presentKeys.length; x++) {
+			check(foundPresent[x] == records.get(presentKeys[x] & 0xFFFFFFFFL),
+					"find(int[]) differs for "+sizeOfKey+" byte keys, "+levels+" levels, key 0x"+Integer.toHexString(presentKeys[x]));
+		}
+		return keys.length * 3 + presentKeys.length;
+	}
+
+	static long linearScan(TreeMap<Long, Long> records, long key) {
+		for (Map.Entry<Long, Long> record : records.entrySet()) {
+			if (record.getKey() == key) {
+				return record.getValue();
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Build a heap on node holding a BTH of the records, the leaves hold a random number of records
+	 * and each index node points at up to 5 nodes of the level below.
+	 */
+	static byte[] buildHeap(Random random, TreeMap<Long, Long> records, int sizeOfKey, int levels) {
+		ByteArrayOutputStream heap = new ByteArrayOutputStream();
+		List<Integer> allocations = new ArrayList<Integer>();
+		write(heap, 0, 8);	// HNHDR, filled in at the end
+
+		int headerHid = allocate(heap, allocations, new byte[8]);
+
+		// the leaves, with the first key of each
+		List<Integer> hids = new ArrayList<Integer>();
+		List<Long> firstKeys = new ArrayList<Long>();
+		List<Map.Entry<Long, Long>> entries = new ArrayList<Map.Entry<Long, Long>>(records.entrySet());
+		for (int start = 0; start < entries.size(); ) {
+			// without index levels there is just the one leaf
+			int end = (levels == 0) ? entries.size() : Math.min(entries.size(), start + 1 + random.nextInt(20));
+			ByteArrayOutputStream leaf = new ByteArrayOutputStream();
+			for (Map.Entry<Long, Long> entry : entries.subList(start, end)) {
+				write(leaf, entry.getKey(), sizeOfKey);
+				write(leaf, entry.getValue(), 4);
+			}
+			hids.add(allocate(heap, allocations, leaf.toByteArray()));
+			firstKeys.add(entries.get(start).getKey());
+			start = end;
+		}
+
+		// the index levels, the top one is a single node
+		for (int level = 1; level <= levels; level++) {
+			int perNode = (level == levels) ? hids.size() : 5;
+			List<Integer> levelHids = new ArrayList<Integer>();
+			List<Long> levelFirstKeys = new ArrayList<Long>();
+			for (int start = 0; start < hids.size(); start += perNode) {
+				ByteArrayOutputStream node = new ByteArrayOutputStream();
+				for (int x = start; x < Math.min(hids.size(), start + perNode); x++) {
+					write(node, firstKeys.get(x), sizeOfKey);
+					write(node, hids.get(x), 4);
+				}
+				levelHids.add(allocate(heap, allocations, node.toByteArray()));
+				levelFirstKeys.add(firstKeys.get(start));
+			}
+			hids = levelHids;
+			firstKeys = levelFirstKeys;
+		}
+
+		// the page map
+		if ((heap.size() & 1) != 0) {
+			heap.write(0);
+		}
+		int pageMapOffset = heap.size();
+		write(heap, allocations.size(), 2);	// cAlloc
+		write(heap, 0, 2);					// cFree
+		for (int offset : allocations) {
+			write(heap, offset, 2);
+		}
+		write(heap, pageMapOffset, 2);
+
+		byte[] data = heap.toByteArray();
+		// HNHDR: ibHnpm, bSig, bClientSig, hidUserRoot
+		data[0] = (byte)pageMapOffset;
+		data[1] = (byte)(pageMapOffset >> 8);
+		data[2] = (byte)0xEC;
+		data[3] = (byte)0xBC;
+		data[4] = (byte)headerHid;
+		// BTHHEADER: bType, cbKey, cbEnt, bIdxLevels, hidRoot
+		int header = allocations.get(0);
+		data[header] = (byte)0xB5;
+		data[header + 1] = (byte)sizeOfKey;
+		data[header + 2] = 4;
+		data[header + 3] = (byte)levels;
+		int root = hids.get(0);
+		for (int x = 0; x < 4; x++) {
+			data[header + 4 + x] = (byte)(root >> (x * 8));
+		}
+		return data;
+	}
+
+	private static int allocate(ByteArrayOutputStream heap, List<Integer> allocations, byte[] data) {
+		allocations.add(heap.size());
+		heap.write(data, 0, data.length);
+		return allocations.size() << 5;
+	}
+
+	private static void write(ByteArrayOutputStream out, long value, int size) {
+		for (int x = 0; x < size; x++) {
+			out.write((int)(value >> (x * 8)));
+		}
+	}
+
+	static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new IllegalStateException(message);
+		}
+	}
+}